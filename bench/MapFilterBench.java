@@ -0,0 +1,28 @@
+import info.kgeorgiy.ja.bozhe.concurrent.IterativeParallelism;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Per-call time of {@link IterativeParallelism#map} and {@link IterativeParallelism#filter} without a mapper.
+ * Against a revision before the block-wise collection of results, this compares it with the old concatenation.
+ * Usage: MapFilterBench [threads] [list sizes...]
+ */
+public class MapFilterBench {
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int[] sizes = args.length > 1
+                ? IntStream.range(1, args.length).map(i -> Integer.parseInt(args[i])).toArray()
+                : new int[]{10_000, 50_000};
+
+        IterativeParallelism parallelism = new IterativeParallelism();
+        for (int size : sizes) {
+            List<Integer> list = IntStream.range(0, size).boxed().collect(Collectors.toList());
+            System.out.printf("%-6s %,10d elements, %d threads: %s%n", "map", size, threads,
+                    Timing.measure(() -> parallelism.map(threads, list, x -> x + 1)));
+            System.out.printf("%-6s %,10d elements, %d threads: %s%n", "filter", size, threads,
+                    Timing.measure(() -> parallelism.filter(threads, list, x -> x % 2 == 0)));
+        }
+    }
+}
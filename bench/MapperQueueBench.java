@@ -0,0 +1,68 @@
+import info.kgeorgiy.ja.bozhe.concurrent.ParallelMapperImpl;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Throughput of {@link ParallelMapperImpl#map} with cheap and costlier functions,
+ * for a single client and for several clients sharing the mapper.
+ * Usage: MapperQueueBench [threads] [list size] [clients]
+ */
+public class MapperQueueBench {
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        List<Integer> list = IntStream.range(0, size).boxed().collect(Collectors.toList());
+
+        ParallelMapperImpl mapper = new ParallelMapperImpl(threads);
+        try {
+            bench(mapper, "cheap function, 1 client", list, x -> x + 1, 1);
+            bench(mapper, "cheap function, " + clients + " clients", list, x -> x + 1, clients);
+            bench(mapper, "costly function, 1 client", list, MapperQueueBench::costly, 1);
+            bench(mapper, "costly function, " + clients + " clients", list, MapperQueueBench::costly, clients);
+        } finally {
+            mapper.close();
+        }
+    }
+
+    private static Integer costly(Integer x) {
+        int hash = x;
+        for (int i = 0; i < 100; ++i) {
+            hash = hash * 31 + i;
+        }
+        return hash;
+    }
+
+    private static void bench(ParallelMapperImpl mapper,
+                              String name,
+                              List<Integer> list,
+                              Function<Integer, Integer> function,
+                              int clients) throws InterruptedException {
+        long median = Timing.measure(() -> round(mapper, list, function, clients)).median();
+        System.out.printf("%-40s %8.1f ms/round %8.1f M elements/s%n",
+                name, median / 1e6, (double) list.size() * clients / median * 1e3);
+    }
+
+    private static void round(ParallelMapperImpl mapper,
+                              List<Integer> list,
+                              Function<Integer, Integer> function,
+                              int clients) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int i = 0; i < clients; ++i) {
+            new Thread(() -> {
+                try {
+                    mapper.map(function, list);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+    }
+}
@@ -0,0 +1,29 @@
+import info.kgeorgiy.ja.bozhe.concurrent.ThreadsRunner;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Per-call startup latency of {@link ThreadsRunner}: the time to run {@code threads} empty runnables and join them.
+ * {@code PLATFORM} starts a thread per runnable as {@code ThreadsRunner} always did, {@code VIRTUAL} uses virtual
+ * threads or the carrier pool, and a group hands the runnables to its parked workers.
+ * Needs a revision with {@link ThreadsRunner.Mode}, so run it on the working tree only.
+ * Usage: StartupBench [threads]
+ */
+public class StartupBench {
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+
+        List<Runnable> runnables = Collections.nCopies(threads, () -> {});
+        for (ThreadsRunner.Mode mode : ThreadsRunner.Mode.values()) {
+            System.out.printf("%-20s %d runnables: %s%n", mode + " threads", threads,
+                    Timing.measure(() -> new ThreadsRunner(threads, mode).runAll(runnables)));
+        }
+        ThreadsRunner group = ThreadsRunner.group(threads, ThreadsRunner.Mode.PLATFORM);
+        try {
+            System.out.printf("%-20s %d runnables: %s%n", "group", threads, Timing.measure(() -> group.runAll(runnables)));
+        } finally {
+            group.close();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Timing loop shared by the benchmarks: half a second of warm-up calls,
+ * then about two seconds of measured calls, at least five of them.
+ */
+public class Timing {
+    private static final long WARMUP_NANOS = 500_000_000L;
+    private static final long TARGET_NANOS = 2_000_000_000L;
+    private static final int MIN_CALLS = 5;
+    private static final int MAX_CALLS = 100_000;
+
+    private final List<Long> times;
+
+    private Timing(List<Long> times) {
+        this.times = times;
+    }
+
+    public static Timing measure(Call call) throws InterruptedException {
+        long warmup = 0;
+        int warmupCalls = 0;
+        while (warmup < WARMUP_NANOS || warmupCalls < 3) {
+            warmup += time(call);
+            warmupCalls++;
+        }
+        int calls = (int) Math.max(MIN_CALLS, Math.min(MAX_CALLS, TARGET_NANOS * warmupCalls / warmup));
+        List<Long> times = new ArrayList<>(calls);
+        for (int i = 0; i < calls; ++i) {
+            times.add(time(call));
+        }
+        Collections.sort(times);
+        return new Timing(times);
+    }
+
+    private static long time(Call call) throws InterruptedException {
+        long start = System.nanoTime();
+        call.run();
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Returns the median time of a call in nanoseconds.
+     */
+    public long median() {
+        return percentile(50);
+    }
+
+    /**
+     * Returns the time in nanoseconds that the given percentage of calls did not exceed.
+     */
+    public long percentile(int percent) {
+        return times.get(Math.min(times.size() - 1, times.size() * percent / 100));
+    }
+
+    /**
+     * Returns the median, 90th and 99th percentiles per call in microseconds and the number of calls.
+     */
+    @Override
+    public String toString() {
+        return String.format("median %10.1f us/call, p90 %10.1f us/call, p99 %10.1f us/call (%d calls)",
+                median() / 1e3, percentile(90) / 1e3, percentile(99) / 1e3, times.size());
+    }
+
+    @FunctionalInterface
+    public interface Call {
+        void run() throws InterruptedException;
+    }
+}
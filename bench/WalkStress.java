@@ -0,0 +1,142 @@
+import info.kgeorgiy.ja.bozhe.walk.RecursiveWalk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Stress test of parallel hashing: walks a generated tree with hashing and traversal threads
+ * and a shared hash cache, and compares every output with a sequential walk without a cache.
+ * Between rounds some files are rewritten, so the workers look up and store cache entries at the same time.
+ * Every eighth file is larger than a megabyte, so the memory-mapped path of the workers runs too.
+ * Exits with 1 if any output differs and with 2 if the walk or the test itself reports an error.
+ * Build it together with the walk package: {@code javac -d out info/kgeorgiy/ja/bozhe/walk/*.java bench/WalkStress.java}.
+ * Usage: WalkStress [threads] [files] [rounds]
+ */
+public class WalkStress {
+    private static final String[] ALGORITHMS = {"pjw", "xxhash64", "crc32c", "sha256"};
+    private static final int DIRECTORIES = 8;
+
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int files = args.length > 1 ? Integer.parseInt(args[1]) : 128;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+        Path directory = null;
+        int status = 0;
+        try {
+            directory = Files.createTempDirectory("walk-stress");
+            Path tree = directory.resolve("tree");
+            Random random = new Random(files);
+            List<Path> paths = generate(tree, files, random);
+            Path input = Files.writeString(directory.resolve("input.txt"), tree.toString());
+            for (String algorithm : ALGORITHMS) {
+                Path cache = directory.resolve(algorithm + ".cache");
+                int mismatches = 0;
+                for (int round = 0; round < rounds; ++round) {
+                    List<String> expected = walk(input, directory.resolve("expected.txt"), "--hash", algorithm);
+                    List<String> actual = walk(input, directory.resolve("actual.txt"), "--hash", algorithm,
+                            "--threads", Integer.toString(threads),
+                            "--traversal-threads", Integer.toString(Math.max(1, threads / 4)),
+                            "--cache", cache.toString());
+                    if (!expected.equals(actual)) {
+                        mismatches++;
+                    }
+                    rewrite(paths, random, round);
+                }
+                System.out.printf("%-10s %d threads, %d files, %d rounds: %d mismatches%n",
+                        algorithm, threads, files, rounds, mismatches);
+                if (mismatches > 0) {
+                    status = 1;
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("Stress test failed: " + e.getMessage());
+            status = 2;
+        } finally {
+            delete(directory);
+        }
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    private static List<Path> generate(Path tree, int files, Random random) throws IOException {
+        List<Path> paths = new ArrayList<>(files);
+        for (int i = 0; i < files; ++i) {
+            Path directory = tree.resolve("dir" + i % DIRECTORIES);
+            Files.createDirectories(directory);
+            paths.add(directory.resolve("file" + i));
+            write(paths.get(i), i, random, 0);
+        }
+        return paths;
+    }
+
+    /**
+     * Rewrites every tenth file with new contents and an older modification time,
+     * so the cache sees both unchanged and changed files in the next round.
+     */
+    private static void rewrite(List<Path> paths, Random random, int round) throws IOException {
+        for (int i = round % 10; i < paths.size(); i += 10) {
+            write(paths.get(i), i, random, round + 1);
+        }
+    }
+
+    private static void write(Path path, int index, Random random, int age) throws IOException {
+        // Files from a megabyte up are memory-mapped.
+        int size = index % 8 == 7 ? (1 << 20) + random.nextInt(1 << 20) : random.nextInt(256 * 1024);
+        byte[] content = new byte[size];
+        random.nextBytes(content);
+        Files.write(path, content);
+        // The cache skips files modified within the last seconds, so all files are made an hour old.
+        Files.setLastModifiedTime(path, FileTime.from(System.currentTimeMillis()
+                - TimeUnit.HOURS.toMillis(1) - TimeUnit.MINUTES.toMillis(age), TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Runs {@link RecursiveWalk} and returns the sorted lines of its output.
+     * The walk reports its errors to stderr only, so anything written there fails the test.
+     */
+    private static List<String> walk(Path input, Path output, String... options) throws IOException {
+        String[] args = Stream.concat(Stream.of(input.toString(), output.toString()), Stream.of(options))
+                .toArray(String[]::new);
+        PrintStream err = System.err;
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(errors, true, StandardCharsets.UTF_8));
+        try {
+            RecursiveWalk.main(args);
+        } finally {
+            System.setErr(err);
+        }
+        if (errors.size() > 0) {
+            throw new IllegalStateException("The walk reported errors: " + errors.toString(StandardCharsets.UTF_8));
+        }
+        try (Stream<String> lines = Files.lines(output)) {
+            return lines.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static void delete(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot delete " + directory + ": " + e.getMessage());
+        }
+    }
+}
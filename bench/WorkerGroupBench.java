@@ -0,0 +1,29 @@
+import info.kgeorgiy.ja.bozhe.concurrent.IterativeParallelism;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Per-call time of {@link IterativeParallelism#maximum} without a mapper, for lists of several sizes.
+ * Against a revision before the shared worker group, this compares it with starting threads on every call.
+ * Usage: WorkerGroupBench [threads] [list sizes...]
+ */
+public class WorkerGroupBench {
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int[] sizes = args.length > 1
+                ? IntStream.range(1, args.length).map(i -> Integer.parseInt(args[i])).toArray()
+                : new int[]{1_000, 100_000, 10_000_000};
+
+        IterativeParallelism parallelism = new IterativeParallelism();
+        for (int size : sizes) {
+            List<Integer> list = IntStream.range(0, size).boxed().collect(Collectors.toList());
+            Collections.shuffle(list);
+            System.out.printf("%,12d elements, %d threads: %s%n", size, threads,
+                    Timing.measure(() -> parallelism.maximum(threads, list, Comparator.naturalOrder())));
+        }
+    }
+}
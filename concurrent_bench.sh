@@ -0,0 +1,44 @@
+#!/bin/bash
+
+# Runs a benchmark from bench/, timed by bench/Timing.java, against the concurrent package of the working tree
+# and, if a revision is given, against the same package at that revision.
+# Usage: ./concurrent_bench.sh <benchmark class> [baseline revision] [benchmark arguments...]
+# Example: ./concurrent_bench.sh MapperQueueBench 8f862d7 4 1000000
+# The course artifacts with the ParallelMapper and AdvancedIP interfaces are taken from ${ARTIFACTS}.
+
+BENCH=$1
+BASELINE=$2
+shift
+[[ $# -gt 0 ]] && shift
+ARTIFACTS=${ARTIFACTS:-../../java-advanced-2021/artifacts}
+DIR=info/kgeorgiy/ja/bozhe/concurrent
+
+if [[ -z ${BENCH} || ! -f bench/${BENCH}.java ]]; then
+    echo "Usage: $0 <benchmark class> [baseline revision] [benchmark arguments...]"
+    echo "Benchmarks:" $(cd bench && ls *Bench.java | sed 's/\.java$//')
+    exit 1
+fi
+
+WORK=$(mktemp -d)
+trap 'rm -rf ${WORK}' EXIT
+
+build() {
+    local name=$1 sources=$2
+    javac -nowarn -cp "${ARTIFACTS}/*" -d ${WORK}/${name} ${sources}/${DIR}/*.java bench/${BENCH}.java bench/Timing.java || exit 1
+}
+
+run() {
+    local name=$1 label=$2
+    shift 2
+    echo "== ${label}"
+    java -cp "${WORK}/${name}:${ARTIFACTS}/*" ${BENCH} "$@" || echo "FAILED (exit code $?)"
+}
+
+build current .
+if [[ -n ${BASELINE} && ${BASELINE} != "-" ]]; then
+    mkdir -p ${WORK}/baseline-sources
+    git archive ${BASELINE} ${DIR} | tar -x -C ${WORK}/baseline-sources || exit 1
+    build baseline ${WORK}/baseline-sources
+    run baseline "baseline ${BASELINE}" "$@"
+fi
+run current "working tree" "$@"
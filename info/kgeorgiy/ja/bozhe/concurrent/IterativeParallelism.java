@@ -4,22 +4,39 @@ import info.kgeorgiy.java.advanced.concurrent.AdvancedIP;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
-import java.util.function.BinaryOperator;
-import java.util.function.Function;
-import java.util.function.Predicate;
-
-import static java.lang.Math.min;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.*;
 
 @SuppressWarnings("unused")
 public class IterativeParallelism implements AdvancedIP {
+    private static final int BATCH_SIZE = 1024;
+    // Calls with more threads than this start their own threads, so that the shared groups stay small.
+    private static final int MAX_SHARED_WORKERS = Math.max(64, 4 * Runtime.getRuntime().availableProcessors());
+    private static final Map<ThreadsRunner.Mode, SharedGroup> GROUPS = new EnumMap<>(ThreadsRunner.Mode.class);
+
+    static {
+        for (ThreadsRunner.Mode mode : ThreadsRunner.Mode.values()) {
+            GROUPS.put(mode, new SharedGroup(mode));
+        }
+    }
+
     private final ParallelMapper parallelMapper;
+    private final ThreadsRunner.Mode mode;
 
     public IterativeParallelism() {
-        parallelMapper = null;
+        this(ThreadsRunner.Mode.PLATFORM);
+    }
+
+    public IterativeParallelism(ThreadsRunner.Mode mode) {
+        this.parallelMapper = null;
+        this.mode = mode;
     }
 
     public IterativeParallelism(ParallelMapper parallelMapper) {
         this.parallelMapper = parallelMapper;
+        this.mode = ThreadsRunner.Mode.PLATFORM;
     }
 
     public ParallelMapper getParallelMapper() {
@@ -31,36 +48,178 @@ public class IterativeParallelism implements AdvancedIP {
                                 Function<T, R> mapper,
                                 Monoid<R> monoid,
                                 Function<List<R>, R> processResult) throws InterruptedException {
+        return doParallel(threads, list, mapper, monoid, null, processResult);
+    }
+
+    /**
+     * Reduces blocks of the list in parallel.
+     * Once any block reaches a partial result satisfying {@code decisive}, the other blocks
+     * stop at their next element, so {@code processResult} gets incomplete results of those blocks.
+     */
+    private <R, T> R doParallel(int threads,
+                                List<? extends T> list,
+                                Function<T, R> mapper,
+                                Monoid<R> monoid,
+                                Predicate<R> decisive,
+                                Function<List<R>, R> processResult) throws InterruptedException {
         if (list == null || list.isEmpty()) {
             return null;
         }
 
-        Function<List<? extends T>, R> blockProcessor = (List<? extends T> x) -> x.stream().map(mapper).reduce(monoid.getIdentity(), monoid.getOperator());
-        int blockSize = list.size() / threads + 1, remains = list.size() % threads;
-        List<R> localAns = new ArrayList<>(Collections.nCopies(threads, null));
-        List<R> ans;
+        BinaryOperator<R> operator = monoid.getOperator();
+        AtomicBoolean decided = new AtomicBoolean();
+        Function<List<? extends T>, R> blockProcessor = (List<? extends T> x) -> {
+            R result = monoid.getIdentity();
+            for (T element : x) {
+                if (decisive != null && decided.get()) {
+                    break;
+                }
+                result = operator.apply(result, mapper.apply(element));
+                if (decisive != null && decisive.test(result)) {
+                    decided.set(true);
+                    break;
+                }
+            }
+            return result;
+        };
+        List<R> ans = processBlocks(threads, list, blockProcessor);
+        ans.removeIf(Objects::isNull);
+        return processResult.apply(ans);
+    }
+
+    /**
+     * Splits the list into {@code threads} contiguous blocks and returns the results of
+     * {@code blockProcessor} for them in the order of blocks.
+     */
+    private <T, B> List<B> processBlocks(int threads,
+                                         List<? extends T> list,
+                                         Function<List<? extends T>, B> blockProcessor) throws InterruptedException {
+        return processRanges(threads, list.size(), (from, to) -> blockProcessor.apply(list.subList(from, to)));
+    }
+
+    /**
+     * Splits indices {@code [0, size)} into {@code threads} contiguous ranges and returns the results of
+     * {@code rangeProcessor} for them in the order of ranges.
+     */
+    private <B> List<B> processRanges(int threads, int size, RangeProcessor<B> rangeProcessor) throws InterruptedException {
+        return processRanges(threads, size, (block, from, to) -> rangeProcessor.apply(from, to));
+    }
 
-        List<List<? extends T>> tasksList = new ArrayList<>(threads);
+    /**
+     * Same as {@link #processRanges(int, int, RangeProcessor)}, but also passes the index of the range.
+     */
+    private <B> List<B> processRanges(int threads, int size, IndexedRangeProcessor<B> rangeProcessor) throws InterruptedException {
+        int blockSize = size / threads + 1, remains = size % threads;
+        List<int[]> tasksList = new ArrayList<>(threads);
         for (int i = 0, start = 0; i < threads; ++i, start += blockSize) {
             if (i == remains) {
                 blockSize--;
             }
-            tasksList.add(list.subList(start, min(start + blockSize, list.size())));
+            tasksList.add(new int[]{i, start, Math.min(start + blockSize, size)});
         }
+
         if (parallelMapper != null) {
-            ans = parallelMapper.map(blockProcessor, tasksList);
-        } else {
-            ThreadsRunner threadsRunner = new ThreadsRunner(threads);
-            for (int i = 0; i < threads; ++i) {
-                final int curThread = i;
-                threadsRunner.run(() -> localAns.set(curThread, blockProcessor.apply(tasksList.get(curThread))));
+            return new ArrayList<>(parallelMapper.map(range -> rangeProcessor.apply(range[0], range[1], range[2]), tasksList));
+        }
+        List<B> localAns = new ArrayList<>(Collections.nCopies(threads, null));
+        List<Runnable> tasks = new ArrayList<>(threads);
+        for (int i = 0; i < threads; ++i) {
+            final int curThread = i;
+            final int[] range = tasksList.get(i);
+            tasks.add(() -> localAns.set(curThread, rangeProcessor.apply(range[0], range[1], range[2])));
+        }
+        if (threads > MAX_SHARED_WORKERS || !GROUPS.get(mode).tryRunAll(tasks)) {
+            new ThreadsRunner(threads, mode).runAll(tasks);
+        }
+        return localAns;
+    }
+
+    /**
+     * Worker group shared by all instances with the same mode, so that no instance keeps threads of its own.
+     * It grows to the largest number of threads requested, and concurrent or nested calls
+     * do not wait for it and start their own threads instead, so only a single caller at a time
+     * runs without starting threads. Exceptions of blocks reach the caller on both paths.
+     */
+    private static class SharedGroup {
+        private final ThreadsRunner.Mode mode;
+        private final Lock lock = new ReentrantLock();
+        private ThreadsRunner group;
+
+        SharedGroup(ThreadsRunner.Mode mode) {
+            this.mode = mode;
+        }
+
+        boolean tryRunAll(List<Runnable> tasks) throws InterruptedException {
+            if (!lock.tryLock()) {
+                return false;
+            }
+            try {
+                if (group == null || group.getWorkersNumber() < tasks.size()) {
+                    if (group != null) {
+                        group.close();
+                    }
+                    group = ThreadsRunner.group(tasks.size(), mode);
+                }
+                group.runAll(tasks);
+                return true;
+            } finally {
+                lock.unlock();
             }
-            ans = localAns;
-            threadsRunner.join();
         }
+    }
 
-        ans.removeIf(Objects::isNull);
-        return processResult.apply(ans);
+    @FunctionalInterface
+    private interface RangeProcessor<B> {
+        B apply(int from, int to);
+    }
+
+    @FunctionalInterface
+    private interface IndexedRangeProcessor<B> {
+        B apply(int block, int from, int to);
+    }
+
+    /**
+     * Lets every block write its elements into its own buffer sized to the block,
+     * then copies the buffers into the result once, at offsets given by prefix sums of their sizes.
+     */
+    @SuppressWarnings("unchecked")
+    private <T, U> List<U> collectBlocks(int threads, List<? extends T> list, BlockWriter<T> writer) throws InterruptedException {
+        if (list == null || list.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Buffer> buffers = processBlocks(threads, list, block -> {
+            Object[] values = new Object[block.size()];
+            return new Buffer(values, writer.write(block, values));
+        });
+
+        int[] offsets = new int[buffers.size() + 1];
+        for (int i = 0; i < buffers.size(); ++i) {
+            offsets[i + 1] = offsets[i] + buffers.get(i).size;
+        }
+        Object[] result = new Object[offsets[buffers.size()]];
+        for (int i = 0; i < buffers.size(); ++i) {
+            System.arraycopy(buffers.get(i).values, 0, result, offsets[i], buffers.get(i).size);
+        }
+        // Callers get a mutable list, as they did before blocks wrote into buffers.
+        return new ArrayList<>((List<U>) Arrays.asList(result));
+    }
+
+    @FunctionalInterface
+    private interface BlockWriter<T> {
+        /**
+         * Writes elements produced from the block into the buffer and returns their number.
+         */
+        int write(List<? extends T> block, Object[] buffer);
+    }
+
+    private static class Buffer {
+        private final Object[] values;
+        private final int size;
+
+        Buffer(Object[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
     }
 
     @Override
@@ -87,12 +246,115 @@ public class IterativeParallelism implements AdvancedIP {
                 localAns -> localAns.stream().max(comparator).orElse(null));
     }
 
+    /**
+     * Stable sort: blocks are sorted in parallel and then merged with a k-way merge,
+     * equal elements of different blocks are taken in the order of blocks.
+     */
+    public <T> List<T> sort(int threads, List<? extends T> list, Comparator<? super T> comparator) throws InterruptedException {
+        if (list == null || list.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<List<T>> blocks = processBlocks(threads, list, block -> {
+            List<T> sorted = new ArrayList<>(block);
+            sorted.sort(comparator);
+            return sorted;
+        });
+
+        List<Cursor<T>> cursors = new ArrayList<>(blocks.size());
+        for (List<T> block : blocks) {
+            if (!block.isEmpty()) {
+                cursors.add(new Cursor<>(cursors.size(), block));
+            }
+        }
+        Comparator<Cursor<T>> cursorComparator = Comparator.comparing(Cursor::head, comparator);
+        PriorityQueue<Cursor<T>> queue = new PriorityQueue<>(
+                Math.max(cursors.size(), 1),
+                cursorComparator.thenComparingInt(cursor -> cursor.index)
+        );
+        queue.addAll(cursors);
+
+        List<T> result = new ArrayList<>(list.size());
+        while (!queue.isEmpty()) {
+            Cursor<T> cursor = queue.poll();
+            result.add(cursor.head());
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns at most {@code k} greatest elements in descending order.
+     * Every block keeps its own heap of at most {@code k} elements, so a block never holds more than that.
+     */
+    public <T> List<T> topK(int threads, List<? extends T> list, int k, Comparator<? super T> comparator) throws InterruptedException {
+        if (k < 0) {
+            throw new IllegalArgumentException("k should be non-negative.");
+        }
+        if (list == null || list.isEmpty() || k == 0) {
+            return new ArrayList<>();
+        }
+        List<PriorityQueue<T>> heaps = processBlocks(threads, list, block -> {
+            PriorityQueue<T> heap = new PriorityQueue<>(Math.min(k, block.size()) + 1, comparator);
+            for (T element : block) {
+                offerBounded(heap, element, k, comparator);
+            }
+            return heap;
+        });
+
+        PriorityQueue<T> top = new PriorityQueue<>(Math.min(k, list.size()) + 1, comparator);
+        for (PriorityQueue<T> heap : heaps) {
+            for (T element : heap) {
+                offerBounded(top, element, k, comparator);
+            }
+        }
+        List<T> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(top.poll());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private static <T> void offerBounded(PriorityQueue<T> heap, T element, int k, Comparator<? super T> comparator) {
+        if (heap.size() < k) {
+            heap.add(element);
+        } else if (comparator.compare(element, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(element);
+        }
+    }
+
+    /**
+     * Position in a sorted block during the merge.
+     */
+    private static class Cursor<T> {
+        private final int index;
+        private final List<T> block;
+        private int position;
+
+        Cursor(int index, List<T> block) {
+            this.index = index;
+            this.block = block;
+        }
+
+        T head() {
+            return block.get(position);
+        }
+
+        boolean advance() {
+            return ++position < block.size();
+        }
+    }
+
     @Override
     public <T> boolean all(int threads, List<? extends T> list, Predicate<? super T> predicate) throws InterruptedException {
         return doParallel(threads,
                 list,
                 predicate::test,
                 new Monoid<>(Boolean.TRUE, (x, y) -> x && y),
+                result -> !result,
                 localAns -> localAns.stream().allMatch(x -> x));
     }
 
@@ -102,6 +364,7 @@ public class IterativeParallelism implements AdvancedIP {
                 list,
                 predicate::test,
                 new Monoid<>(Boolean.FALSE, (x, y) -> x || y),
+                result -> result,
                 localAns -> localAns.stream().anyMatch(x -> x));
     }
 
@@ -114,34 +377,28 @@ public class IterativeParallelism implements AdvancedIP {
                 localAns -> String.join("", localAns));
     }
 
-    private <T> List<T> mergeLists(List<T> x, List<T> y) {
-        List<T> ans = new ArrayList<>(x);
-        ans.addAll(y);
-        return ans;
-    }
-
-    private <T> List<T> listProcesser(List<List<T>> lists) {
-        return lists.stream().reduce(new ArrayList<>(), this::mergeLists);
-    }
-
     @Override
     public <T> List<T> filter(int threads, List<? extends T> list, Predicate<? super T> predicate) throws InterruptedException {
-        return doParallel(threads,
-                list,
-                x -> new ArrayList<>(predicate.test(x) ? List.of(x) : List.of()),
-                new Monoid<List<T>>(new ArrayList<>(), this::mergeLists),
-                this::listProcesser
-        );
+        return collectBlocks(threads, list, (block, buffer) -> {
+            int size = 0;
+            for (T element : block) {
+                if (predicate.test(element)) {
+                    buffer[size++] = element;
+                }
+            }
+            return size;
+        });
     }
 
     @Override
     public <T, U> List<U> map(int threads, List<? extends T> list, Function<? super T, ? extends U> function) throws InterruptedException {
-        return doParallel(threads,
-                list,
-                x -> new ArrayList<>(List.of(function.apply(x))),
-                new Monoid<List<U>>(new ArrayList<>(), this::mergeLists),
-                this::listProcesser
-        );
+        return collectBlocks(threads, list, (block, buffer) -> {
+            int size = 0;
+            for (T element : block) {
+                buffer[size++] = function.apply(element);
+            }
+            return size;
+        });
     }
 
     @Override
@@ -154,9 +411,354 @@ public class IterativeParallelism implements AdvancedIP {
         );
     }
 
+    /**
+     * Inclusive prefix reduction: the {@code i}-th element of the result reduces elements {@code 0..i}.
+     */
+    public <T> List<T> scan(int threads, List<? extends T> list, Monoid<T> monoid) throws InterruptedException {
+        return scan(threads, list, monoid, true);
+    }
+
+    /**
+     * Exclusive prefix reduction: the {@code i}-th element of the result reduces elements {@code 0..i-1},
+     * so the first one is the identity.
+     */
+    public <T> List<T> exclusiveScan(int threads, List<? extends T> list, Monoid<T> monoid) throws InterruptedException {
+        return scan(threads, list, monoid, false);
+    }
+
+    /**
+     * Two passes over the same blocks: the first one reduces every block, then the block sums are scanned
+     * to get the offset of each block, and the second one scans every block starting from its offset.
+     */
+    private <T> List<T> scan(int threads, List<? extends T> list, Monoid<T> monoid, boolean inclusive) throws InterruptedException {
+        if (list == null || list.isEmpty()) {
+            return new ArrayList<>();
+        }
+        BinaryOperator<T> operator = monoid.getOperator();
+        List<T> sums = processRanges(threads, list.size(), (from, to) -> {
+            T sum = monoid.getIdentity();
+            for (T element : list.subList(from, to)) {
+                sum = operator.apply(sum, element);
+            }
+            return sum;
+        });
+
+        List<T> offsets = new ArrayList<>(sums.size());
+        T offset = monoid.getIdentity();
+        for (T sum : sums) {
+            offsets.add(offset);
+            offset = operator.apply(offset, sum);
+        }
+
+        Object[] result = new Object[list.size()];
+        processRanges(threads, list.size(), (block, from, to) -> {
+            T current = offsets.get(block);
+            int i = from;
+            for (T element : list.subList(from, to)) {
+                T next = operator.apply(current, element);
+                result[i++] = inclusive ? next : current;
+                current = next;
+            }
+            return null;
+        });
+        @SuppressWarnings("unchecked") List<T> scanned = (List<T>) Arrays.asList(result);
+        return new ArrayList<>(scanned);
+    }
+
+    public int sum(int threads, int[] values) throws InterruptedException {
+        return mapReduce(threads, values, IntUnaryOperator.identity(), 0, Integer::sum);
+    }
+
+    public OptionalInt min(int threads, int[] values) throws InterruptedException {
+        return values.length == 0 ? OptionalInt.empty()
+                : OptionalInt.of(mapReduce(threads, values, IntUnaryOperator.identity(), Integer.MAX_VALUE, Math::min));
+    }
+
+    public OptionalInt max(int threads, int[] values) throws InterruptedException {
+        return values.length == 0 ? OptionalInt.empty()
+                : OptionalInt.of(mapReduce(threads, values, IntUnaryOperator.identity(), Integer.MIN_VALUE, Math::max));
+    }
+
+    public int mapReduce(int threads, int[] values, IntUnaryOperator mapper, int identity, IntBinaryOperator operator) throws InterruptedException {
+        List<Integer> results = processRanges(threads, values.length, (from, to) -> {
+            int result = identity;
+            for (int i = from; i < to; ++i) {
+                result = operator.applyAsInt(result, mapper.applyAsInt(values[i]));
+            }
+            return result;
+        });
+        int result = identity;
+        for (int blockResult : results) {
+            result = operator.applyAsInt(result, blockResult);
+        }
+        return result;
+    }
+
+    public long sum(int threads, long[] values) throws InterruptedException {
+        return mapReduce(threads, values, LongUnaryOperator.identity(), 0, Long::sum);
+    }
+
+    public OptionalLong min(int threads, long[] values) throws InterruptedException {
+        return values.length == 0 ? OptionalLong.empty()
+                : OptionalLong.of(mapReduce(threads, values, LongUnaryOperator.identity(), Long.MAX_VALUE, Math::min));
+    }
+
+    public OptionalLong max(int threads, long[] values) throws InterruptedException {
+        return values.length == 0 ? OptionalLong.empty()
+                : OptionalLong.of(mapReduce(threads, values, LongUnaryOperator.identity(), Long.MIN_VALUE, Math::max));
+    }
+
+    public long mapReduce(int threads, long[] values, LongUnaryOperator mapper, long identity, LongBinaryOperator operator) throws InterruptedException {
+        List<Long> results = processRanges(threads, values.length, (from, to) -> {
+            long result = identity;
+            for (int i = from; i < to; ++i) {
+                result = operator.applyAsLong(result, mapper.applyAsLong(values[i]));
+            }
+            return result;
+        });
+        long result = identity;
+        for (long blockResult : results) {
+            result = operator.applyAsLong(result, blockResult);
+        }
+        return result;
+    }
+
+    public double sum(int threads, double[] values) throws InterruptedException {
+        return mapReduce(threads, values, DoubleUnaryOperator.identity(), 0, Double::sum);
+    }
+
+    public OptionalDouble min(int threads, double[] values) throws InterruptedException {
+        return values.length == 0 ? OptionalDouble.empty()
+                : OptionalDouble.of(mapReduce(threads, values, DoubleUnaryOperator.identity(), Double.POSITIVE_INFINITY, Math::min));
+    }
+
+    public OptionalDouble max(int threads, double[] values) throws InterruptedException {
+        return values.length == 0 ? OptionalDouble.empty()
+                : OptionalDouble.of(mapReduce(threads, values, DoubleUnaryOperator.identity(), Double.NEGATIVE_INFINITY, Math::max));
+    }
+
+    public double mapReduce(int threads, double[] values, DoubleUnaryOperator mapper, double identity, DoubleBinaryOperator operator) throws InterruptedException {
+        List<Double> results = processRanges(threads, values.length, (from, to) -> {
+            double result = identity;
+            for (int i = from; i < to; ++i) {
+                result = operator.applyAsDouble(result, mapper.applyAsDouble(values[i]));
+            }
+            return result;
+        });
+        double result = identity;
+        for (double blockResult : results) {
+            result = operator.applyAsDouble(result, blockResult);
+        }
+        return result;
+    }
+
     @Override
     public <T, R> R mapReduce(int threads, List<T> list, Function<T, R> function, Monoid<R> monoid) throws InterruptedException {
-        return reduce(threads, map(threads, list, function), monoid);
+        return parallel(threads, list).map(function).reduce(monoid);
+    }
+
+    /**
+     * Starts a lazy pipeline over the list. Its stages are fused, so a terminal operation
+     * passes every element through all of them within one pass over the blocks.
+     */
+    public <T> Pipeline<T, T> parallel(int threads, List<? extends T> list) {
+        return new Pipeline<>(this, threads, list, sink -> sink::accept);
+    }
+
+    /**
+     * Chain of stages from elements of type {@code S} to elements of type {@code T}.
+     * Every stage wraps the sink of the next one, nothing is evaluated before a terminal operation.
+     */
+    public static class Pipeline<S, T> {
+        private final IterativeParallelism parallelism;
+        private final int threads;
+        private final List<? extends S> source;
+        private final Function<Consumer<? super T>, Consumer<S>> stages;
+
+        private Pipeline(IterativeParallelism parallelism,
+                         int threads,
+                         List<? extends S> source,
+                         Function<Consumer<? super T>, Consumer<S>> stages) {
+            this.parallelism = parallelism;
+            this.threads = threads;
+            this.source = source;
+            this.stages = stages;
+        }
+
+        public <U> Pipeline<S, U> map(Function<? super T, ? extends U> function) {
+            return new Pipeline<>(parallelism, threads, source,
+                    sink -> stages.apply(element -> sink.accept(function.apply(element))));
+        }
+
+        public Pipeline<S, T> filter(Predicate<? super T> predicate) {
+            return new Pipeline<>(parallelism, threads, source,
+                    sink -> stages.apply(element -> {
+                        if (predicate.test(element)) {
+                            sink.accept(element);
+                        }
+                    }));
+        }
+
+        public T reduce(Monoid<T> monoid) throws InterruptedException {
+            if (source == null || source.isEmpty()) {
+                return monoid.getIdentity();
+            }
+            Folder<T, T> result = new Folder<>(Function.identity(), monoid);
+            parallelism.processBlocks(threads, source, block -> {
+                Folder<T, T> folder = new Folder<>(Function.identity(), monoid);
+                Consumer<S> sink = stages.apply(folder);
+                block.forEach(sink);
+                return folder.result;
+            }).forEach(result::combine);
+            return result.result;
+        }
+
+        public List<T> toList() throws InterruptedException {
+            return parallelism.collectBlocks(threads, source, (block, buffer) -> {
+                int[] size = new int[1];
+                Consumer<S> sink = stages.apply(element -> buffer[size[0]++] = element);
+                block.forEach(sink);
+                return size[0];
+            });
+        }
+    }
+
+    public <T> T reduce(int threads, Iterable<T> source, Monoid<T> monoid) throws InterruptedException {
+        return mapReduce(threads, source, Function.identity(), monoid);
+    }
+
+    public <T, R> R mapReduce(int threads, Iterable<T> source, Function<? super T, ? extends R> function, Monoid<R> monoid) throws InterruptedException {
+        return mapReduce(threads, source.spliterator(), function, monoid);
+    }
+
+    /**
+     * Reduces the elements of {@code source} in encounter order.
+     * A sized source is split with {@link Spliterator#trySplit()} into at most {@code threads} parts,
+     * any other source is pulled in rounds of {@code threads} batches of {@link #BATCH_SIZE} elements,
+     * so lazily produced or unbounded inputs are processed with bounded memory.
+     */
+    public <T, R> R mapReduce(int threads,
+                              Spliterator<? extends T> source,
+                              Function<? super T, ? extends R> function,
+                              Monoid<R> monoid) throws InterruptedException {
+        if (source.hasCharacteristics(Spliterator.SUBSIZED)) {
+            return reduceSplit(threads, source, function, monoid);
+        }
+
+        List<Batch<T>> batches = new ArrayList<>(threads);
+        R result = monoid.getIdentity();
+        while (true) {
+            int filled = 0;
+            while (filled < threads) {
+                if (batches.size() == filled) {
+                    batches.add(new Batch<>());
+                }
+                Batch<T> batch = batches.get(filled);
+                batch.clear();
+                while (batch.size < BATCH_SIZE && source.tryAdvance(batch)) {
+                    // Pulling the next element into the batch.
+                }
+                if (batch.size == 0) {
+                    break;
+                }
+                filled++;
+            }
+            if (filled == 0) {
+                return result;
+            }
+
+            for (R blockResult : processRanges(filled, filled, (from, to) -> batches.get(from).fold(function, monoid))) {
+                result = monoid.getOperator().apply(result, blockResult);
+            }
+            if (filled < threads) {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Splits the largest part until there are {@code threads} parts or nothing splits any further,
+     * keeping the parts in encounter order.
+     */
+    private <T, R> R reduceSplit(int threads,
+                                 Spliterator<? extends T> source,
+                                 Function<? super T, ? extends R> function,
+                                 Monoid<R> monoid) throws InterruptedException {
+        List<Spliterator<? extends T>> parts = new ArrayList<>(threads);
+        parts.add(source);
+        while (parts.size() < threads) {
+            int largest = 0;
+            for (int i = 1; i < parts.size(); ++i) {
+                if (parts.get(i).estimateSize() > parts.get(largest).estimateSize()) {
+                    largest = i;
+                }
+            }
+            Spliterator<? extends T> prefix = parts.get(largest).estimateSize() > 1 ? parts.get(largest).trySplit() : null;
+            if (prefix == null) {
+                break;
+            }
+            parts.add(largest, prefix);
+        }
+
+        List<R> partial = processRanges(parts.size(), parts.size(), (from, to) -> {
+            Folder<T, R> folder = new Folder<>(function, monoid);
+            parts.get(from).forEachRemaining(folder);
+            return folder.result;
+        });
+        Folder<T, R> folder = new Folder<>(function, monoid);
+        partial.forEach(folder::combine);
+        return folder.result;
+    }
+
+    /**
+     * Folds consumed elements into {@link #result}.
+     */
+    private static class Folder<T, R> implements Consumer<T> {
+        private final Function<? super T, ? extends R> function;
+        private final BinaryOperator<R> operator;
+        private R result;
+
+        Folder(Function<? super T, ? extends R> function, Monoid<R> monoid) {
+            this.function = function;
+            this.operator = monoid.getOperator();
+            this.result = monoid.getIdentity();
+        }
+
+        @Override
+        public void accept(T element) {
+            result = operator.apply(result, function.apply(element));
+        }
+
+        void combine(R blockResult) {
+            result = operator.apply(result, blockResult);
+        }
+    }
+
+    /**
+     * Reusable buffer for elements pulled from a source that cannot be split.
+     */
+    private static class Batch<T> implements Consumer<T> {
+        private final Object[] values = new Object[BATCH_SIZE];
+        private int size;
+
+        @Override
+        public void accept(T element) {
+            values[size++] = element;
+        }
+
+        @SuppressWarnings("unchecked")
+        <R> R fold(Function<? super T, ? extends R> function, Monoid<R> monoid) {
+            Folder<T, R> folder = new Folder<>(function, monoid);
+            for (int i = 0; i < size; ++i) {
+                folder.accept((T) values[i]);
+            }
+            return folder.result;
+        }
+
+        void clear() {
+            Arrays.fill(values, 0, size, null);
+            size = 0;
+        }
     }
 }
 
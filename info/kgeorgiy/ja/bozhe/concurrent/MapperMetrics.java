@@ -0,0 +1,232 @@
+package info.kgeorgiy.ja.bozhe.concurrent;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a {@link ParallelMapperImpl}.
+ * Updates are lock-free: shared counters are {@link LongAdder}s and every worker adds its busy time to its own slot.
+ *
+ * <p>Wait is the time from submitting a {@code map} until a worker starts its first chunk,
+ * execution is the time of a single chunk, and queue depth counts the {@code map} calls waiting for a worker.
+ */
+public class MapperMetrics implements MapperMetricsMBean {
+    private static final AtomicInteger IDS = new AtomicInteger();
+
+    private final long start = System.nanoTime();
+    private final LongAdder maps = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder elements = new LongAdder();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final LatencyHistogram waits = new LatencyHistogram();
+    private final LatencyHistogram executions = new LatencyHistogram();
+    private final AtomicLongArray busy;
+    private ObjectName name;
+
+    MapperMetrics(int workers) {
+        busy = new AtomicLongArray(workers);
+    }
+
+    void mapSubmitted() {
+        maps.increment();
+    }
+
+    void enqueued(int tasks) {
+        maxQueueDepth.accumulateAndGet(queueDepth.addAndGet(tasks), Math::max);
+    }
+
+    void dequeued() {
+        queueDepth.decrementAndGet();
+    }
+
+    void started(long waitNanos) {
+        waits.record(waitNanos);
+    }
+
+    void chunkExecuted(int size, long nanos) {
+        chunks.increment();
+        elements.add(size);
+        executions.record(nanos);
+    }
+
+    void workerBusy(int worker, long nanos) {
+        busy.addAndGet(worker, nanos);
+    }
+
+    /**
+     * Registers the metrics in the platform MBean server, they are unregistered when the mapper is closed.
+     */
+    public synchronized ObjectName register() throws JMException {
+        if (name == null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("info.kgeorgiy.ja.bozhe.concurrent:type=MapperMetrics,id=" + IDS.incrementAndGet());
+            server.registerMBean(this, objectName);
+            name = objectName;
+        }
+        return name;
+    }
+
+    synchronized void unregister() {
+        if (name != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            } catch (JMException e) {
+                System.err.println("Cannot unregister mapper metrics: " + e.getMessage());
+            }
+            name = null;
+        }
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    @Override
+    public long getMapsSubmitted() {
+        return maps.sum();
+    }
+
+    @Override
+    public long getChunksExecuted() {
+        return chunks.sum();
+    }
+
+    @Override
+    public long getElementsMapped() {
+        return elements.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    @Override
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    @Override
+    public long getWaitP50Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(waits.percentile(0.5));
+    }
+
+    @Override
+    public long getWaitP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(waits.percentile(0.99));
+    }
+
+    @Override
+    public long getExecutionP50Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(executions.percentile(0.5));
+    }
+
+    @Override
+    public long getExecutionP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(executions.percentile(0.99));
+    }
+
+    @Override
+    public double getBusyRatio() {
+        return Arrays.stream(getWorkerBusyRatios()).average().orElse(0);
+    }
+
+    /**
+     * Share of the mapper lifetime every worker spent running tasks rather than waiting for them.
+     */
+    @Override
+    public double[] getWorkerBusyRatios() {
+        double elapsed = Math.max(1, System.nanoTime() - start);
+        double[] ratios = new double[busy.length()];
+        for (int i = 0; i < ratios.length; ++i) {
+            ratios[i] = Math.min(1, busy.get(i) / elapsed);
+        }
+        return ratios;
+    }
+
+    /**
+     * Values of the metrics read at one moment, each of them is read separately, so they are not a consistent cut.
+     */
+    public static class Snapshot {
+        private final long mapsSubmitted;
+        private final long chunksExecuted;
+        private final long elementsMapped;
+        private final int queueDepth;
+        private final int maxQueueDepth;
+        private final long waitP50Micros;
+        private final long waitP99Micros;
+        private final long executionP50Micros;
+        private final long executionP99Micros;
+        private final double[] workerBusyRatios;
+
+        private Snapshot(MapperMetrics metrics) {
+            mapsSubmitted = metrics.getMapsSubmitted();
+            chunksExecuted = metrics.getChunksExecuted();
+            elementsMapped = metrics.getElementsMapped();
+            queueDepth = metrics.getQueueDepth();
+            maxQueueDepth = metrics.getMaxQueueDepth();
+            waitP50Micros = metrics.getWaitP50Micros();
+            waitP99Micros = metrics.getWaitP99Micros();
+            executionP50Micros = metrics.getExecutionP50Micros();
+            executionP99Micros = metrics.getExecutionP99Micros();
+            workerBusyRatios = metrics.getWorkerBusyRatios();
+        }
+
+        public long getMapsSubmitted() {
+            return mapsSubmitted;
+        }
+
+        public long getChunksExecuted() {
+            return chunksExecuted;
+        }
+
+        public long getElementsMapped() {
+            return elementsMapped;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public int getMaxQueueDepth() {
+            return maxQueueDepth;
+        }
+
+        public long getWaitP50Micros() {
+            return waitP50Micros;
+        }
+
+        public long getWaitP99Micros() {
+            return waitP99Micros;
+        }
+
+        public long getExecutionP50Micros() {
+            return executionP50Micros;
+        }
+
+        public long getExecutionP99Micros() {
+            return executionP99Micros;
+        }
+
+        public double[] getWorkerBusyRatios() {
+            return workerBusyRatios.clone();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("maps %d, chunks %d, elements %d, queue %d (max %d), wait p50 %d us p99 %d us,"
+                            + " execution p50 %d us p99 %d us, busy %s",
+                    mapsSubmitted, chunksExecuted, elementsMapped, queueDepth, maxQueueDepth,
+                    waitP50Micros, waitP99Micros, executionP50Micros, executionP99Micros,
+                    Arrays.toString(workerBusyRatios));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package info.kgeorgiy.ja.bozhe.concurrent;
+
+public interface MapperMetricsMBean {
+    long getMapsSubmitted();
+
+    long getChunksExecuted();
+
+    long getElementsMapped();
+
+    int getQueueDepth();
+
+    int getMaxQueueDepth();
+
+    long getWaitP50Micros();
+
+    long getWaitP99Micros();
+
+    long getExecutionP50Micros();
+
+    long getExecutionP99Micros();
+
+    double getBusyRatio();
+
+    double[] getWorkerBusyRatios();
+}
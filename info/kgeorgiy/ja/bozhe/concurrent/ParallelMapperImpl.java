@@ -3,109 +3,329 @@ package info.kgeorgiy.ja.bozhe.concurrent;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 @SuppressWarnings("unused")
 public class ParallelMapperImpl implements ParallelMapper {
+    public static final int MIN_PRIORITY = 1;
+    public static final int NORM_PRIORITY = 5;
+    public static final int MAX_PRIORITY = 10;
 
+    private final int threads;
     private final ThreadsRunner threadsRunner;
     private final TasksQueue taskQueue;
-    private boolean closed = false;
-    private InterruptedException exception;
+    private final MapperMetrics metrics;
+    private final Set<MapTask<?, ?>> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed = false;
 
-    private void except(InterruptedException e) {
-        if (exception == null) {
-            exception = e;
-        } else {
-            exception.addSuppressed(e);
-        }
+    public ParallelMapperImpl(int threads) {
+        this(threads, ThreadsRunner.Mode.PLATFORM);
     }
 
-    public ParallelMapperImpl(int threads) {
-        this.taskQueue = new TasksQueue();
-        Runnable task = () -> {
+    public ParallelMapperImpl(int threads, ThreadsRunner.Mode mode) {
+        // Checked before the metrics and queues are sized by it.
+        if (threads <= 0) {
+            throw new IllegalArgumentException("There should be positive number of threads.");
+        }
+        this.threads = threads;
+        this.metrics = new MapperMetrics(threads);
+        this.taskQueue = new TasksQueue(threads, metrics);
+        threadsRunner = new ThreadsRunner(threads, worker -> () -> {
             try {
-                while (!Thread.interrupted()) {
-                    taskQueue.getTask().run();
+                // Functions may swallow the interrupt of close, so the flag is checked as well.
+                while (!closed && !Thread.interrupted()) {
+                    MapTask<?, ?> task = taskQueue.getTask(worker);
+                    long start = System.nanoTime();
+                    task.run(worker);
+                    metrics.workerBusy(worker, System.nanoTime() - start);
                 }
-            } catch (InterruptedException e) {
-                except(e);
+            } catch (InterruptedException ignored) {
+                // The mapper is closed.
             }
-        };
-        threadsRunner = new ThreadsRunner(threads, task);
+        }, mode);
+    }
+
+    public MapperMetrics getMetrics() {
+        return metrics;
     }
 
     @Override
     public <T, R> List<R> map(Function<? super T, ? extends R> function, List<? extends T> list) throws InterruptedException {
-        MappedList<R> resultList = new MappedList<>(list.size());
+        return map(function, list, NORM_PRIORITY);
+    }
+
+    /**
+     * Maps with the given priority, see {@link #mapAsync(Function, List, int)}.
+     */
+    public <T, R> List<R> map(Function<? super T, ? extends R> function, List<? extends T> list, int priority) throws InterruptedException {
         if (closed) {
             throw new InterruptedException("Map was closed.");
         }
-
-        for (int i = 0; i < list.size(); ++i) {
-            final int index = i;
-            if (!closed) {
-                taskQueue.add(() -> resultList.set(index, function.apply(list.get(index))));
+        CompletableFuture<List<R>> future = mapAsync(function, list, priority);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ClosedException) {
+                InterruptedException closedException = new InterruptedException("Map was closed.");
+                closedException.initCause(cause);
+                throw closedException;
             }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            // Tasks fail only with unchecked exceptions of the function.
+            throw (RuntimeException) cause;
+        }
+    }
+
+    /**
+     * Starts mapping without waiting for the result.
+     * Several calls may be in progress at once. Cancelling the returned future stops the remaining work
+     * of this call only, and an exception thrown by {@code function} fails this call only.
+     * Closing the mapper fails the future with {@link ClosedException}.
+     */
+    public <T, R> CompletableFuture<List<R>> mapAsync(Function<? super T, ? extends R> function, List<? extends T> list) {
+        return mapAsync(function, list, NORM_PRIORITY);
+    }
+
+    /**
+     * Starts mapping with a priority from {@link #MIN_PRIORITY} to {@link #MAX_PRIORITY}.
+     * Workers always run chunks of calls with the highest priority first,
+     * and calls of the same priority get chunks in turn, whatever their sizes.
+     */
+    public <T, R> CompletableFuture<List<R>> mapAsync(Function<? super T, ? extends R> function,
+                                                      List<? extends T> list,
+                                                      int priority) {
+        if (priority < MIN_PRIORITY || priority > MAX_PRIORITY) {
+            throw new IllegalArgumentException("Priority should be from " + MIN_PRIORITY + " to " + MAX_PRIORITY + ".");
         }
-        List<R> result = resultList.getMappedList();
-        if (exception != null) {
-            throw exception;
+        MapTask<T, R> task = new MapTask<>(function, list, threads, priority, taskQueue, metrics);
+        if (list.isEmpty()) {
+            task.future.complete(new ArrayList<>());
+            return task.future;
         }
-        return result;
+        inFlight.add(task);
+        task.future.whenComplete((result, e) -> inFlight.remove(task));
+        if (closed) {
+            task.future.completeExceptionally(new ClosedException());
+            return task.future;
+        }
+        metrics.mapSubmitted();
+        taskQueue.add(task);
+        return task.future;
     }
 
     @Override
     public void close() {
         closed = true;
+        for (MapTask<?, ?> task : inFlight) {
+            task.future.completeExceptionally(new ClosedException());
+        }
         threadsRunner.interrupt();
+        metrics.unregister();
     }
 
+    /**
+     * Fails futures of {@link #mapAsync} calls that were in progress or submitted when the mapper was closed.
+     */
+    public static class ClosedException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        ClosedException() {
+            super("Mapper was closed.");
+        }
+    }
+
+    /**
+     * Work-stealing queue of calls in progress: every worker owns a deque per priority,
+     * idle workers steal from the heads of the deques of other workers.
+     * A worker takes a call of the highest priority present in any deque, claims a chunk of it and,
+     * if something is left, puts the call back to the head of its own deque before running the chunk.
+     * The owner takes calls from the tail, so the calls of a deque get chunks round-robin,
+     * other workers join a call by stealing it, and a small call never waits for a whole big one.
+     * New calls are spread over the deques round-robin and are put to the heads as well.
+     */
     private static class TasksQueue {
-        private final Deque<Runnable> tasks;
+        private final List<List<Deque<MapTask<?, ?>>>> deques;
+        private final AtomicInteger next = new AtomicInteger();
+        private final Object idle = new Object();
+        private final MapperMetrics metrics;
+        private volatile int waiting;
+
+        TasksQueue(int workers, MapperMetrics metrics) {
+            this.metrics = metrics;
+            deques = new ArrayList<>(workers);
+            for (int i = 0; i < workers; ++i) {
+                List<Deque<MapTask<?, ?>>> levels = new ArrayList<>(MAX_PRIORITY - MIN_PRIORITY + 1);
+                for (int j = MIN_PRIORITY; j <= MAX_PRIORITY; ++j) {
+                    levels.add(new ConcurrentLinkedDeque<>());
+                }
+                deques.add(levels);
+            }
+        }
+
+        public void add(MapTask<?, ?> task) {
+            push(Math.floorMod(next.getAndIncrement(), deques.size()), task);
+        }
+
+        /**
+         * Puts a call back to the deque of the worker that has just claimed a chunk of it.
+         */
+        public void requeue(int worker, MapTask<?, ?> task) {
+            push(worker, task);
+        }
 
-        TasksQueue() {
-            tasks = new ArrayDeque<>();
+        private void push(int worker, MapTask<?, ?> task) {
+            metrics.enqueued(1);
+            deques.get(worker).get(task.priority - MIN_PRIORITY).addFirst(task);
+            if (waiting > 0) {
+                synchronized (idle) {
+                    idle.notify();
+                }
+            }
         }
 
-        public synchronized void add(Runnable task) {
-            tasks.addLast(task);
-            notify();
+        private MapTask<?, ?> poll(int worker) {
+            for (int level = MAX_PRIORITY - MIN_PRIORITY; level >= 0; --level) {
+                MapTask<?, ?> task = deques.get(worker).get(level).pollLast();
+                for (int i = 1; task == null && i < deques.size(); ++i) {
+                    task = deques.get((worker + i) % deques.size()).get(level).pollFirst();
+                }
+                if (task != null) {
+                    metrics.dequeued();
+                    return task;
+                }
+            }
+            return null;
         }
 
-        public synchronized Runnable getTask() throws InterruptedException {
-            while (tasks.isEmpty()) {
-                wait();
+        private boolean isEmpty() {
+            for (List<Deque<MapTask<?, ?>>> levels : deques) {
+                for (Deque<MapTask<?, ?>> deque : levels) {
+                    if (!deque.isEmpty()) {
+                        return false;
+                    }
+                }
             }
-            return tasks.pollFirst();
+            return true;
         }
-        public synchronized boolean isEmpty() {
-            return tasks.isEmpty();
+
+        public MapTask<?, ?> getTask(int worker) throws InterruptedException {
+            while (true) {
+                MapTask<?, ?> task = poll(worker);
+                if (task != null) {
+                    return task;
+                }
+                synchronized (idle) {
+                    // Announce waiting before the final check, so that a concurrent push either
+                    // is seen by the check or sees the waiter and wakes it up.
+                    waiting++;
+                    try {
+                        while (isEmpty()) {
+                            idle.wait();
+                        }
+                    } finally {
+                        waiting--;
+                    }
+                }
+            }
         }
     }
 
-    private static class MappedList<R> {
-        private final List<R> list;
-        int inProgress;
+    /**
+     * Single {@code map} call. Every run claims one chunk of consecutive indices and writes its results
+     * into a preallocated array, so synchronization happens once per chunk rather than once per element.
+     *
+     * <p>Chunk sizes adapt to the measured cost of an element: a chunk should take about
+     * {@link #TARGET_CHUNK_NANOS}, and never more than a {@code 1 / (2 * workers)} share of the rest,
+     * so that the last chunks stay small enough to balance the workers.
+     * Once the future is done, because of a failure, cancellation or close, no new chunks are claimed.
+     */
+    private static class MapTask<T, R> {
+        private static final long TARGET_CHUNK_NANOS = 100_000;
+        private static final int PROBE_SIZE = 16;
+
+        private final Function<? super T, ? extends R> function;
+        private final List<? extends T> list;
+        private final int workers;
+        private final Object[] results;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger completed = new AtomicInteger();
+        private final CompletableFuture<List<R>> future = new CompletableFuture<>();
+        private final int priority;
+        private final TasksQueue queue;
+        private final MapperMetrics metrics;
+        private final long submitted = System.nanoTime();
+        private final AtomicBoolean started = new AtomicBoolean();
+        private volatile long elementNanos;
 
-        public MappedList(int size) {
-            this.list = new ArrayList<>(Collections.nCopies(size, null));
-            inProgress = size;
+        MapTask(Function<? super T, ? extends R> function,
+                List<? extends T> list,
+                int workers,
+                int priority,
+                TasksQueue queue,
+                MapperMetrics metrics) {
+            this.function = function;
+            this.list = list;
+            this.workers = workers;
+            this.results = new Object[list.size()];
+            this.priority = priority;
+            this.queue = queue;
+            this.metrics = metrics;
         }
 
-        public synchronized void set(int index, R el) {
-            list.set(index, el);
-            inProgress--;
-            if (inProgress == 0) {
-                notify();
+        private int chunkSize(int remaining) {
+            int share = Math.max(1, remaining / (2 * workers));
+            long cost = elementNanos;
+            if (cost == 0) {
+                return Math.min(PROBE_SIZE, share);
             }
+            return (int) Math.max(1, Math.min(share, TARGET_CHUNK_NANOS / cost));
         }
 
-        public synchronized List<R> getMappedList() throws InterruptedException {
-            while (inProgress != 0) {
-                wait();
+        /**
+         * Runs one chunk on the given worker.
+         */
+        @SuppressWarnings("unchecked")
+        public void run(int worker) {
+            if (started.compareAndSet(false, true)) {
+                metrics.started(System.nanoTime() - submitted);
+            }
+            int start;
+            int end;
+            do {
+                start = next.get();
+                if (start >= results.length || future.isDone()) {
+                    return;
+                }
+                end = start + chunkSize(results.length - start);
+            } while (!next.compareAndSet(start, end));
+            if (end < results.length) {
+                queue.requeue(worker, this);
+            }
+
+            long time = System.nanoTime();
+            try {
+                for (int i = start; i < end; ++i) {
+                    results[i] = function.apply(list.get(i));
+                }
+            } catch (RuntimeException | Error e) {
+                future.completeExceptionally(e);
+                return;
+            }
+            long elapsed = System.nanoTime() - time;
+            metrics.chunkExecuted(end - start, elapsed);
+            elementNanos = Math.max(1, elapsed / (end - start));
+            if (completed.addAndGet(end - start) == results.length) {
+                future.complete(new ArrayList<>((List<R>) Arrays.asList(results)));
             }
-            return list;
         }
     }
 }
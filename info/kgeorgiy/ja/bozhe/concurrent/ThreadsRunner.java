@@ -2,42 +2,126 @@ package info.kgeorgiy.ja.bozhe.concurrent;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
 
 public class ThreadsRunner {
-    public final List<Thread> threads;
+    /**
+     * How submitted runnables are executed.
+     */
+    public enum Mode {
+        /**
+         * A new platform thread per runnable.
+         */
+        PLATFORM,
+        /**
+         * A new virtual thread per runnable if the runtime supports them,
+         * otherwise a thread from a shared pool of reusable daemon carrier threads.
+         * Either way no OS thread is started per runnable once the carriers are warm.
+         */
+        VIRTUAL
+    }
+
+    private static final ThreadFactory VIRTUAL_THREADS = virtualThreadFactory();
+    private static final ExecutorService CARRIERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "threads-runner-carrier");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<Task> tasks;
+    private final Mode mode;
+    private final Worker[] workers;
+    private final AtomicInteger remaining = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile Thread caller;
+    private volatile boolean closed;
 
     public ThreadsRunner(int threadsNumber) {
+        this(threadsNumber, Mode.PLATFORM);
+    }
+
+    public ThreadsRunner(int threadsNumber, Mode mode) {
         if (threadsNumber <= 0) {
             throw new IllegalArgumentException("There should be positive number of threads.");
         }
-        this.threads = new ArrayList<>(threadsNumber);
+        this.tasks = new ArrayList<>(threadsNumber);
+        this.mode = mode;
+        this.workers = null;
     }
 
-    public ThreadsRunner(int threadsNumber, Runnable runnable) {
-        if (threadsNumber <= 0) {
+    private ThreadsRunner(Mode mode, int workersNumber) {
+        if (workersNumber <= 0) {
             throw new IllegalArgumentException("There should be positive number of threads.");
         }
-        this.threads = new ArrayList<>(threadsNumber);
+        this.tasks = new ArrayList<>();
+        this.mode = mode;
+        this.workers = new Worker[workersNumber];
+        for (int i = 0; i < workersNumber; ++i) {
+            workers[i] = new Worker();
+        }
+    }
+
+    /**
+     * Creates a group of {@code workersNumber} long-lived daemon workers for {@link #runAll(List)}.
+     * The workers are started once here and wait for rounds until the group is {@link #close() closed}.
+     */
+    public static ThreadsRunner group(int workersNumber, Mode mode) {
+        return new ThreadsRunner(mode, workersNumber);
+    }
+
+    public ThreadsRunner(int threadsNumber, Runnable runnable) {
+        this(threadsNumber, i -> runnable);
+    }
+
+    public ThreadsRunner(int threadsNumber, IntFunction<Runnable> runnables) {
+        this(threadsNumber, runnables, Mode.PLATFORM);
+    }
+
+    public ThreadsRunner(int threadsNumber, IntFunction<Runnable> runnables, Mode mode) {
+        this(threadsNumber, mode);
         for (int i = 0; i < threadsNumber; ++i) {
-            run(runnable);
+            run(runnables.apply(i));
+        }
+    }
+
+    private static ThreadFactory virtualThreadFactory() {
+        // Thread.ofVirtual() appeared in Java 21, so it is looked up reflectively to keep older runtimes working.
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
         }
     }
 
     public void run(Runnable runnable) {
-        Thread t = new Thread(runnable);
-        t.start();
-        threads.add(t);
+        Task task = new Task(runnable);
+        if (mode == Mode.PLATFORM) {
+            new Thread(task).start();
+        } else if (VIRTUAL_THREADS != null) {
+            VIRTUAL_THREADS.newThread(task).start();
+        } else {
+            CARRIERS.execute(task);
+        }
+        tasks.add(task);
     }
 
     public void join() throws InterruptedException {
         InterruptedException exception = null;
-        for (int i = 0; i < threads.size(); ++i) {
+        for (int i = 0; i < tasks.size(); ++i) {
             try {
-                threads.get(i).join();
+                tasks.get(i).join();
             } catch (InterruptedException e) {
                 if (exception == null) {
                     exception = new InterruptedException("Joining was interrupted.");
-                    threads.forEach(Thread::interrupt);
+                    tasks.forEach(Task::interrupt);
                 }
                 i--;
                 exception.addSuppressed(e);
@@ -50,9 +134,189 @@ public class ThreadsRunner {
     }
 
     public void interrupt() {
-        threads.forEach(Thread::interrupt);
+        tasks.forEach(Task::interrupt);
         try {
             join();
         } catch (InterruptedException ignored) {}
     }
+
+    public int getWorkersNumber() {
+        return workers == null ? 0 : workers.length;
+    }
+
+    /**
+     * Runs all runnables and waits for them, like a {@link #run(Runnable)} per runnable followed by {@link #join()}.
+     * A group hands them out to its workers, the {@code i}-th worker gets runnables {@code i}, {@code i + workers}
+     * and so on, so no thread is started. Either way the first exception thrown by a runnable is rethrown
+     * after all of them end. Rounds of a group must not overlap.
+     */
+    public synchronized void runAll(List<? extends Runnable> runnables) throws InterruptedException {
+        if (workers == null) {
+            failure.set(null);
+            for (Runnable runnable : runnables) {
+                run(() -> {
+                    try {
+                        runnable.run();
+                    } catch (RuntimeException | Error e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+            }
+            join();
+            rethrowFailure();
+            return;
+        }
+        if (closed) {
+            throw new IllegalStateException("Threads runner was closed.");
+        }
+
+        int used = Math.min(workers.length, runnables.size());
+        caller = Thread.currentThread();
+        failure.set(null);
+        remaining.set(used);
+        for (int i = 0; i < used; ++i) {
+            List<Runnable> round = new ArrayList<>(runnables.size() / used + 1);
+            for (int j = i; j < runnables.size(); j += workers.length) {
+                round.add(runnables.get(j));
+            }
+            workers[i].start(round);
+        }
+
+        boolean interrupted = false;
+        while (remaining.get() > 0) {
+            LockSupport.park(this);
+            if (Thread.interrupted() && !interrupted) {
+                interrupted = true;
+                for (Worker worker : workers) {
+                    worker.interrupt();
+                }
+            }
+        }
+
+        rethrowFailure();
+        if (interrupted) {
+            throw new InterruptedException("Joining was interrupted.");
+        }
+    }
+
+    private void rethrowFailure() {
+        Throwable thrown = failure.getAndSet(null);
+        if (thrown instanceof RuntimeException) {
+            throw (RuntimeException) thrown;
+        } else if (thrown instanceof Error) {
+            throw (Error) thrown;
+        }
+    }
+
+    /**
+     * Stops the workers of a group once they finish the current round.
+     */
+    public void close() {
+        closed = true;
+        if (workers != null) {
+            for (Worker worker : workers) {
+                LockSupport.unpark(worker.thread);
+            }
+        }
+    }
+
+    /**
+     * Long-lived thread of a group that runs the runnables put into its slot.
+     */
+    private class Worker implements Runnable {
+        private final Thread thread;
+        private volatile List<Runnable> slot;
+
+        Worker() {
+            thread = mode == Mode.VIRTUAL && VIRTUAL_THREADS != null
+                    ? VIRTUAL_THREADS.newThread(this)
+                    : new Thread(this, "threads-runner-worker");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void start(List<Runnable> round) {
+            slot = round;
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void run() {
+            while (!closed) {
+                List<Runnable> round = slot;
+                if (round == null) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                for (Runnable runnable : round) {
+                    try {
+                        runnable.run();
+                    } catch (RuntimeException | Error e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+                synchronized (this) {
+                    slot = null;
+                    // Clears an interrupt that arrived too late for the round.
+                    Thread.interrupted();
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    LockSupport.unpark(caller);
+                }
+            }
+        }
+
+        synchronized void interrupt() {
+            if (slot != null) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Runnable that can be joined and interrupted without owning its thread,
+     * so that a pooled carrier thread is never interrupted after the runnable has finished.
+     */
+    private static class Task implements Runnable {
+        private final Runnable runnable;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private Thread thread;
+        private boolean interrupted;
+
+        Task(Runnable runnable) {
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (interrupted) {
+                    done.countDown();
+                    return;
+                }
+                thread = Thread.currentThread();
+            }
+            try {
+                runnable.run();
+            } finally {
+                synchronized (this) {
+                    thread = null;
+                    // Clears an interrupt that arrived too late for the runnable.
+                    Thread.interrupted();
+                }
+                done.countDown();
+            }
+        }
+
+        synchronized void interrupt() {
+            interrupted = true;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        void join() throws InterruptedException {
+            done.await();
+        }
+    }
 }
@@ -15,8 +15,8 @@ public class WebCrawler implements AdvancedCrawler {
     private final int perHost;
     private final ExecutorService downloadService;
     private final ExecutorService extractService;
-    private final ConcurrentHashMap<String, Queue<String>> hostQueues;
-    private final ConcurrentHashMap<String, Integer> busyProcesses;
+    private final ConcurrentHashMap<String, HostQueue> hostQueues;
+    private final Queue<HostQueue> readyHosts = new ConcurrentLinkedQueue<>();
 
     public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost) {
         this.downloader = downloader;
@@ -24,7 +24,6 @@ public class WebCrawler implements AdvancedCrawler {
         this.extractService = Executors.newFixedThreadPool(extractors);
         this.perHost = perHost;
         this.hostQueues = new ConcurrentHashMap<>();
-        this.busyProcesses = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -65,32 +64,27 @@ public class WebCrawler implements AdvancedCrawler {
                             Map<String, IOException> errorsMap,
                             Set<String> urlsToProcess,
                             Predicate<String> accept) {
+        String host;
+        try {
+            host = URLUtils.getHost(url);
+        } catch (MalformedURLException e) {
+            processed.add(url);
+            errorsMap.put(url, e);
+            return;
+        }
+        if (!accept.test(host)) {
+            return;
+        }
+        processed.add(url);
         phaser.register();
-        downloadService.submit(() -> {
-            try {
-                String host = URLUtils.getHost(url);
-                if (accept.test(host)) {
-                    processed.add(url);
-                    busyProcesses.putIfAbsent(host, 0);
-                    hostQueues.putIfAbsent(host, new ConcurrentLinkedQueue<>());
-                    if (busyProcesses.get(host) >= perHost) {
-                        hostQueues.get(host).add(url);
-                    } else {
-                        busyProcesses.put(host, busyProcesses.get(host) + 1);
-                        downloadDoc(url, host, finalLayer, phaser, errorsMap, urlsToProcess);
-                    }
-                } else {
-                    phaser.arriveAndDeregister();
-                }
-            } catch (MalformedURLException e) {
-                errorsMap.put(url, e);
-            }
+        hostQueues.compute(host, (name, queue) -> {
+            HostQueue hostQueue = queue == null ? new HostQueue(name) : queue;
+            hostQueue.add(() -> downloadDoc(url, finalLayer, phaser, errorsMap, urlsToProcess));
+            return hostQueue;
         });
-
     }
 
     private void downloadDoc(String url,
-                             String host,
                              boolean finalLayer,
                              Phaser phaser,
                              Map<String, IOException> errorsMap,
@@ -104,12 +98,105 @@ public class WebCrawler implements AdvancedCrawler {
             errorsMap.put(url, e);
         } finally {
             phaser.arriveAndDeregister();
-            if (!hostQueues.get(host).isEmpty()) {
-                String curUrl = hostQueues.get(host).poll();
-                downloadDoc(curUrl, host, finalLayer, phaser, errorsMap, urlsToProcess);
-            } else {
-                busyProcesses.put(host, busyProcesses.get(host) - 1);
+        }
+    }
+
+    /**
+     * Runs the download of the next ready host and puts the host back to the end of the ready queue
+     * if it still can start another one, so downloaders take one download per host in turn.
+     * Every entry of {@code readyHosts} has exactly one dispatch submitted for it.
+     */
+    private void dispatch() {
+        HostQueue host = readyHosts.poll();
+        Runnable download = host.take();
+        try {
+            download.run();
+        } finally {
+            host.release();
+        }
+    }
+
+    /**
+     * Downloads of a single host. At most {@code perHost} of them run at once, the rest wait here.
+     * The host is in the ready queue while it has pending downloads and a free permit, and at most once,
+     * so a host with many pages gets no more turns than any other ready host.
+     * An idle host is removed from {@code hostQueues}; adding goes through {@link ConcurrentHashMap#compute},
+     * so a removed queue never gets new downloads.
+     */
+    private class HostQueue {
+        private final String host;
+        private final Queue<Runnable> pending = new ArrayDeque<>();
+        private int permits = perHost;
+        private boolean ready;
+
+        HostQueue(String host) {
+            this.host = host;
+        }
+
+        void add(Runnable download) {
+            boolean schedule;
+            synchronized (this) {
+                pending.add(download);
+                schedule = updateReady();
+            }
+            if (schedule) {
+                schedule();
+            }
+        }
+
+        /**
+         * Takes a permit and the next pending download. Called only by the dispatch of this host's ready entry.
+         */
+        Runnable take() {
+            Runnable download;
+            boolean schedule;
+            synchronized (this) {
+                download = pending.poll();
+                permits--;
+                ready = false;
+                schedule = updateReady();
+            }
+            if (schedule) {
+                schedule();
+            }
+            return download;
+        }
+
+        void release() {
+            boolean schedule;
+            boolean idle;
+            synchronized (this) {
+                permits++;
+                schedule = updateReady();
+                idle = isIdle();
+            }
+            if (schedule) {
+                schedule();
+            } else if (idle) {
+                hostQueues.computeIfPresent(host, (name, queue) -> queue == this && isIdle() ? null : queue);
+            }
+        }
+
+        /**
+         * Marks the host as ready if it can start a download and is not queued yet.
+         *
+         * @return {@code true} if the host has to be put to the ready queue
+         */
+        private boolean updateReady() {
+            if (ready || permits == 0 || pending.isEmpty()) {
+                return false;
             }
+            ready = true;
+            return true;
+        }
+
+        private synchronized boolean isIdle() {
+            return permits == perHost && pending.isEmpty();
+        }
+
+        private void schedule() {
+            readyHosts.add(this);
+            downloadService.submit(WebCrawler.this::dispatch);
         }
     }
 
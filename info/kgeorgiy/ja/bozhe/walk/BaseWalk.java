@@ -7,24 +7,27 @@ public class BaseWalk {
     private final Path inputPath;
     private final Path outputPath;
     private final boolean recursive;
+    private final WalkOptions options;
 
 
-    BaseWalk(Path inputPath, Path outputPath, boolean recursive) {
+    BaseWalk(Path inputPath, Path outputPath, boolean recursive, WalkOptions options) {
         this.inputPath = inputPath;
         this.outputPath = outputPath;
         this.recursive = recursive;
+        this.options = options;
     }
 
     public static void run(String[] args, boolean recursive) {
-        if (args == null || args.length != 2) {
-            System.err.println("Invalid arguments number. Usage: RecursiveWalk <input file name> <output file name>");
+        if (args == null || args.length < 2) {
+            System.err.println("Invalid arguments number. " + WalkOptions.USAGE);
         } else if (args[0] == null) {
             System.err.println("Input file name must be written.");
         } else if (args[1] == null) {
             System.err.println("Output file name must be written.");
         } else {
             try {
-                new BaseWalk(findPath(args[0], "input"), findPath(args[1], "output"), recursive).countHashes();
+                WalkOptions options = WalkOptions.parse(args, 2);
+                new BaseWalk(findPath(args[0], "input"), findPath(args[1], "output"), recursive, options).countHashes();
             } catch (WalkException e) {
                 System.err.println(e.getMessage());
             }
@@ -39,6 +42,41 @@ public class BaseWalk {
         }
     }
 
+    private HashCache openCache() throws WalkException {
+        if (options.getCacheFile() == null || options.isChunks()) {
+            return null;
+        }
+        return HashCache.open(findPath(options.getCacheFile(), "cache"), options.getAlgorithm());
+    }
+
+    private HashProcessor createProcessor(HashOutput output, HashCache cache, WalkMetrics metrics) {
+        if (options.isChunks()) {
+            return new ChunkHashProcessor(output, metrics);
+        }
+        if (options.getThreads() > 1) {
+            return new ParallelHashProcessor(output, options.getAlgorithm(), cache, metrics, options.getThreads());
+        }
+        return new SequentialHashProcessor(output, options.getAlgorithm(), cache, metrics);
+    }
+
+    private WalkMetrics createMetrics() throws WalkException {
+        WalkMetrics metrics = new WalkMetrics();
+        if (options.isJmx()) {
+            metrics.register();
+        }
+        if (options.getProgressPeriod() > 0) {
+            metrics.startReporting(options.getProgressPeriod());
+        }
+        return metrics;
+    }
+
+    private ParallelFileTreeWalker createWalker() {
+        if (recursive && options.getTraversalThreads() > 0) {
+            return new ParallelFileTreeWalker(options.getTraversalThreads());
+        }
+        return null;
+    }
+
     private void countHashes() throws WalkException {
         Path outputParentPath = outputPath.getParent();
         if (outputParentPath != null) {
@@ -52,25 +90,38 @@ public class BaseWalk {
         }
 
         try (BufferedReader reader = Files.newBufferedReader(inputPath)) {
-            try (BufferedWriter writer = Files.newBufferedWriter(outputPath)) {
-                try {
-                    HashFileVisitor visitor = new HashFileVisitor(writer);
+            try (HashOutput output = HashOutput.open(outputPath, options.isDirectOutput())) {
+                try (WalkMetrics metrics = createMetrics();
+                     HashCache cache = openCache();
+                     HashProcessor processor = createProcessor(output, cache, metrics);
+                     ParallelFileTreeWalker walker = createWalker()) {
+                    HashFileVisitor visitor = new HashFileVisitor(processor, metrics);
 
                     String file;
                     while ((file = reader.readLine()) != null) {
                         try {
                             Path filepath = Paths.get(file);
                             if (this.recursive) {
-                                Files.walkFileTree(filepath, visitor);
+                                if (walker != null) {
+                                    walker.walk(filepath, visitor);
+                                } else {
+                                    Files.walkFileTree(filepath, visitor);
+                                }
                                 if (visitor.visitFailed()) {
                                     throw new WalkException("Cannot write to the output file.");
                                 }
                             } else {
-                                HashWorker.writeHash(HashWorker.countHash(filepath), file, writer);
+                                metrics.fileVisited();
+                                processor.process(filepath, file, null);
+                            }
+                            if (cache != null) {
+                                cache.walked(filepath);
                             }
                         } catch (InvalidPathException e) {
                             System.err.printf("Invalid path of the file: %s%n", file);
-                            HashWorker.writeHash(0, file, writer);
+                            metrics.fileVisited();
+                            metrics.failure();
+                            processor.processFailed(file);
                         } catch (IOException e) {
                             throw new WalkException("The file cannot be processed:" + file, e);
                         }
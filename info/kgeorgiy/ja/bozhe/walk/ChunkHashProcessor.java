@@ -0,0 +1,77 @@
+package info.kgeorgiy.ja.bozhe.walk;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outputs content-defined chunks of every file and reports how much of the data is duplicated.
+ * Each file line holds the fingerprint of the chunk list and is followed by one line per chunk.
+ * Files with equal fingerprints have equal contents and are reported as duplicate groups.
+ */
+public class ChunkHashProcessor implements HashProcessor {
+    private final HashOutput output;
+    private final ContentChunker chunker = new ContentChunker();
+    private final HashWorker worker;
+    private final byte[] digest = new byte[Long.BYTES];
+    private final byte[] empty = new byte[Long.BYTES];
+    private final ChunkIndex index = new ChunkIndex();
+    private final Map<Long, List<String>> files = new HashMap<>();
+    private final List<List<String>> duplicates = new ArrayList<>();
+    private long chunks;
+    private long bytes;
+    private long uniqueBytes;
+
+    ChunkHashProcessor(HashOutput output, WalkMetrics metrics) {
+        this.output = output;
+        this.worker = new HashWorker(chunker, metrics);
+    }
+
+    @Override
+    public void process(Path file, String name, BasicFileAttributes attributes) throws WalkException {
+        if (!worker.countHash(file, digest)) {
+            output.write(empty, name);
+            return;
+        }
+        output.write(digest, name);
+        for (int i = 0; i < chunker.getChunkCount(); ++i) {
+            long hash = chunker.getChunkHash(i);
+            int length = chunker.getChunkLength(i);
+            output.writeChunk(hash, length);
+            chunks++;
+            bytes += length;
+            if (index.add(hash)) {
+                uniqueBytes += length;
+            }
+        }
+        if (chunker.getChunkCount() > 0) {
+            List<String> group = files.computeIfAbsent(HashAlgorithms.getLong(digest), fingerprint -> new ArrayList<>(1));
+            group.add(name);
+            if (group.size() == 2) {
+                duplicates.add(group);
+            }
+        }
+    }
+
+    @Override
+    public void processFailed(String name) throws WalkException {
+        output.write(empty, name);
+    }
+
+    @Override
+    public void close() {
+        if (index.isFull()) {
+            System.err.println("The chunk index is full, unique chunk counts are approximate.");
+        }
+        System.out.printf("Chunks: %d total, %d unique, %d duplicated%n", chunks, index.size(), index.duplicated());
+        System.out.printf("Bytes: %d total, %d unique, dedup ratio %.3f%n",
+                bytes, uniqueBytes, uniqueBytes == 0 ? 1.0 : (double) bytes / uniqueBytes);
+        System.out.printf("Duplicate file groups: %d%n", duplicates.size());
+        for (List<String> group : duplicates) {
+            System.out.println(String.join(System.lineSeparator() + "  ", group));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package info.kgeorgiy.ja.bozhe.walk;
+
+/**
+ * Set of chunk hashes with occurrence counts.
+ * Open addressing over primitive arrays, so a chunk costs twelve bytes per slot and no objects.
+ * Once the table reaches its maximum capacity, new chunks are no longer recorded and are reported as unseen,
+ * so the counts become approximate but adding never fails.
+ */
+public class ChunkIndex {
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private long size;
+    // Zero marks free slots, so the zero hash is kept aside.
+    private int zeroCount;
+    private long duplicated;
+    private boolean full;
+
+    /**
+     * Adds one occurrence of the chunk.
+     *
+     * @return {@code true} if the chunk has not been seen before
+     */
+    public boolean add(long key) {
+        if (key == 0) {
+            return count(zeroCount++);
+        }
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return count(counts[slot]++);
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (full) {
+            return true;
+        }
+        keys[slot] = key;
+        counts[slot] = 1;
+        if (++size > keys.length / 4 * 3) {
+            grow();
+        }
+        return true;
+    }
+
+    private boolean count(int previous) {
+        if (previous == 0) {
+            size++;
+            return true;
+        }
+        if (previous == 1) {
+            duplicated++;
+        }
+        return false;
+    }
+
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private void grow() {
+        if (keys.length == MAX_CAPACITY) {
+            full = true;
+            return;
+        }
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldKeys[i] != 0) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the number of distinct chunks.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of distinct chunks seen more than once.
+     */
+    public long duplicated() {
+        return duplicated;
+    }
+
+    /**
+     * Returns whether new chunks are no longer recorded.
+     */
+    public boolean isFull() {
+        return full;
+    }
+}
@@ -0,0 +1,97 @@
+package info.kgeorgiy.ja.bozhe.walk;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Splits the consumed bytes into content-defined chunks using a Gear rolling hash.
+ * A boundary is placed after a byte when the rolling hash has its low bits equal to zero,
+ * so inserting or removing data only changes the chunks around the edit.
+ *
+ * <p>Each chunk is identified by its xxHash64. The digest is a fingerprint of the chunk list.
+ */
+public class ContentChunker implements HashAlgorithm.Hasher {
+    static final int MIN_SIZE = 2 * 1024;
+    static final int AVERAGE_SIZE = 8 * 1024;
+    static final int MAX_SIZE = 64 * 1024;
+    private static final long MASK = AVERAGE_SIZE - 1;
+    private static final long FINGERPRINT_PRIME = 0x9E3779B185EBCA87L;
+    private static final long[] GEAR = new SplittableRandom(0x5EED_C0DEL).longs(256).toArray();
+
+    private final HashAlgorithm.Hasher chunkHasher = new XxHash64().newHasher();
+    private final byte[] chunkDigest = new byte[Long.BYTES];
+    private long[] hashes = new long[16];
+    private int[] lengths = new int[16];
+    private int count;
+    private long rolling;
+    private int size;
+    private long fingerprint;
+
+    @Override
+    public void reset() {
+        chunkHasher.reset();
+        count = 0;
+        rolling = 0;
+        size = 0;
+        fingerprint = 0;
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        int start = buffer.position(), limit = buffer.limit();
+        for (int i = start; i < limit; ++i) {
+            rolling = (rolling << 1) + GEAR[buffer.get(i) & 0xff];
+            size++;
+            if (size >= MAX_SIZE || size >= MIN_SIZE && (rolling & MASK) == 0) {
+                buffer.position(start).limit(i + 1);
+                chunkHasher.update(buffer);
+                buffer.limit(limit);
+                finishChunk();
+                start = i + 1;
+            }
+        }
+        buffer.position(start);
+        chunkHasher.update(buffer);
+    }
+
+    private void finishChunk() {
+        chunkHasher.digest(chunkDigest);
+        long hash = HashAlgorithms.getLong(chunkDigest);
+        if (count == hashes.length) {
+            hashes = Arrays.copyOf(hashes, 2 * count);
+            lengths = Arrays.copyOf(lengths, 2 * count);
+        }
+        hashes[count] = hash;
+        lengths[count] = size;
+        count++;
+        fingerprint = (Long.rotateLeft(fingerprint, 23) ^ hash) * FINGERPRINT_PRIME;
+
+        chunkHasher.reset();
+        rolling = 0;
+        size = 0;
+    }
+
+    /**
+     * Finishes the last chunk and writes the fingerprint of all chunks.
+     */
+    @Override
+    public void digest(byte[] digest) {
+        if (size > 0) {
+            finishChunk();
+        }
+        HashAlgorithms.putLong(digest, fingerprint);
+    }
+
+    public int getChunkCount() {
+        return count;
+    }
+
+    public long getChunkHash(int index) {
+        return hashes[index];
+    }
+
+    public int getChunkLength(int index) {
+        return lengths[index];
+    }
+}
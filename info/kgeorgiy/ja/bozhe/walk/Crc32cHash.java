@@ -0,0 +1,38 @@
+package info.kgeorgiy.ja.bozhe.walk;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+public class Crc32cHash implements HashAlgorithm {
+    @Override
+    public String getName() {
+        return "crc32c";
+    }
+
+    @Override
+    public int getDigestLength() {
+        return Integer.BYTES;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        return new Hasher() {
+            private final CRC32C crc = new CRC32C();
+
+            @Override
+            public void reset() {
+                crc.reset();
+            }
+
+            @Override
+            public void update(ByteBuffer buffer) {
+                crc.update(buffer);
+            }
+
+            @Override
+            public void digest(byte[] digest) {
+                HashAlgorithms.putInt(digest, (int) crc.getValue());
+            }
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package info.kgeorgiy.ja.bozhe.walk;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Hash function used by {@link BaseWalk} to compute file digests.
+ * Algorithms other than the built-in ones can be registered through {@link ServiceLoader}.
+ */
+public interface HashAlgorithm {
+    List<HashAlgorithm> BUILT_IN = List.of(new PjwHash(), new XxHash64(), new Crc32cHash(), new Sha256Hash());
+
+    String getName();
+
+    int getDigestLength();
+
+    Hasher newHasher();
+
+    static HashAlgorithm forName(String name) throws WalkException {
+        for (HashAlgorithm algorithm : BUILT_IN) {
+            if (algorithm.getName().equalsIgnoreCase(name)) {
+                return algorithm;
+            }
+        }
+        for (HashAlgorithm algorithm : ServiceLoader.load(HashAlgorithm.class)) {
+            if (algorithm.getName().equalsIgnoreCase(name)) {
+                return algorithm;
+            }
+        }
+        throw new WalkException("Unknown hash algorithm: " + name);
+    }
+
+    /**
+     * Mutable hashing state. Instances are not thread-safe.
+     */
+    interface Hasher {
+        void reset();
+
+        /**
+         * Consumes all remaining bytes of the buffer.
+         */
+        void update(ByteBuffer buffer);
+
+        /**
+         * Writes the digest of the bytes consumed since the last reset, most significant byte first.
+         */
+        void digest(byte[] digest);
+    }
+}
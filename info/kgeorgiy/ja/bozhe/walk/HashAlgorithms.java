@@ -0,0 +1,43 @@
+package info.kgeorgiy.ja.bozhe.walk;
+
+import java.util.Arrays;
+
+public class HashAlgorithms {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private HashAlgorithms() {
+    }
+
+    static void putLong(byte[] digest, long value) {
+        for (int i = Long.BYTES - 1; i >= 0; --i, value >>>= 8) {
+            digest[i] = (byte) value;
+        }
+    }
+
+    static long getLong(byte[] digest) {
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; ++i) {
+            value = (value << 8) | (digest[i] & 0xff);
+        }
+        return value;
+    }
+
+    static void putInt(byte[] digest, int value) {
+        for (int i = Integer.BYTES - 1; i >= 0; --i, value >>>= 8) {
+            digest[i] = (byte) value;
+        }
+    }
+
+    static void clear(byte[] digest) {
+        Arrays.fill(digest, (byte) 0);
+    }
+
+    public static String toHex(byte[] digest) {
+        char[] chars = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; ++i) {
+            chars[2 * i] = HEX[(digest[i] >> 4) & 0xf];
+            chars[2 * i + 1] = HEX[digest[i] & 0xf];
+        }
+        return new String(chars);
+    }
+}
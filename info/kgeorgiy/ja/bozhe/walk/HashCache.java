@@ -0,0 +1,224 @@
+package info.kgeorgiy.ja.bozhe.walk;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent cache of file digests keyed by absolute path.
+ * A cached digest is reused while size, modification time and file key of the file stay the same.
+ *
+ * <p>The cache file is an append-only log of records: newer records for a path override older ones.
+ * It is rewritten without the overridden records when they make up at least half of the log,
+ * and without the records of files that were neither looked up nor stored under a {@link #walked(Path) walked} root,
+ * as such files were deleted or renamed. A log that cannot be decoded is discarded and rebuilt.
+ */
+public class HashCache implements AutoCloseable {
+    private static final int MAGIC = 0x57414c4b;
+    private static final int VERSION = 1;
+    private static final int IO_BUF_SIZE = 1 << 16;
+    // Files modified this close to the start of the run may change again without changing their modification time.
+    private static final long RACY_WINDOW = TimeUnit.SECONDS.toNanos(2);
+
+    private final Path file;
+    private final HashAlgorithm algorithm;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final List<Path> roots = new ArrayList<>();
+    private final long racyLimit;
+    private long records;
+    private DataOutputStream log;
+
+    private HashCache(Path file, HashAlgorithm algorithm) {
+        this.file = file;
+        this.algorithm = algorithm;
+        this.racyLimit = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - RACY_WINDOW;
+    }
+
+    public static HashCache open(Path file, HashAlgorithm algorithm) throws WalkException {
+        HashCache cache = new HashCache(file, algorithm);
+        try {
+            if (!cache.load() || cache.needsCompaction()) {
+                cache.compact();
+            }
+            cache.log = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(file, StandardOpenOption.APPEND), IO_BUF_SIZE));
+        } catch (IOException e) {
+            throw new WalkException("Cannot open the hash cache: " + file, e);
+        }
+        return cache;
+    }
+
+    private boolean load() throws IOException {
+        if (Files.notExists(file)) {
+            return false;
+        }
+        int digestLength = algorithm.getDigestLength();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), IO_BUF_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(algorithm.getName())) {
+                return false;
+            }
+            while (true) {
+                String path;
+                try {
+                    path = in.readUTF();
+                } catch (EOFException e) {
+                    return true;
+                }
+                Entry entry = new Entry(in.readLong(), in.readLong(), in.readUTF(), new byte[digestLength]);
+                in.readFully(entry.digest);
+                entries.put(path, entry);
+                records++;
+            }
+        } catch (EOFException e) {
+            // Truncated by an interrupted run: keep what was read and rewrite the log.
+            return false;
+        } catch (IOException e) {
+            System.err.printf("The hash cache is damaged and will be rebuilt: %s%n", e.getMessage());
+            entries.clear();
+            records = 0;
+            return false;
+        }
+    }
+
+    private boolean needsCompaction() {
+        return records >= 2L * entries.size() && records > 0;
+    }
+
+    private void compact() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), IO_BUF_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(algorithm.getName());
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                write(out, entry.getKey(), entry.getValue());
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        records = entries.size();
+    }
+
+    private static void write(DataOutputStream out, String path, Entry entry) throws IOException {
+        out.writeUTF(path);
+        out.writeLong(entry.size);
+        out.writeLong(entry.modified);
+        out.writeUTF(entry.key);
+        out.write(entry.digest);
+    }
+
+    private static String key(BasicFileAttributes attributes) {
+        Object key = attributes.fileKey();
+        return key == null ? "" : key.toString();
+    }
+
+    private static String path(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    public boolean lookup(Path file, BasicFileAttributes attributes, byte[] digest) {
+        Entry entry = entries.get(path(file));
+        if (entry == null
+                || entry.size != attributes.size()
+                || entry.modified != attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+                || !entry.key.equals(key(attributes))) {
+            return false;
+        }
+        entry.touched = true;
+        System.arraycopy(entry.digest, 0, digest, 0, digest.length);
+        return true;
+    }
+
+    public void store(Path file, BasicFileAttributes attributes, byte[] digest) {
+        long modified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        if (modified >= racyLimit) {
+            return;
+        }
+        String path = path(file);
+        Entry entry = new Entry(attributes.size(), modified, key(attributes), digest.clone());
+        entry.touched = true;
+        entries.put(path, entry);
+        synchronized (this) {
+            if (log == null) {
+                return;
+            }
+            try {
+                write(log, path, entry);
+                records++;
+            } catch (IOException e) {
+                System.err.printf("Cannot write to the hash cache, caching is disabled: %s%n", e.getMessage());
+                closeLog();
+            }
+        }
+    }
+
+    /**
+     * Marks that every existing file under {@code root} has been looked up, so untouched entries under it are stale.
+     */
+    public synchronized void walked(Path root) {
+        roots.add(Paths.get(path(root)));
+    }
+
+    private boolean dropStale() {
+        boolean dropped = false;
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (!entry.getValue().touched && isWalked(Paths.get(entry.getKey()))) {
+                entries.remove(entry.getKey());
+                dropped = true;
+            }
+        }
+        return dropped;
+    }
+
+    private boolean isWalked(Path path) {
+        for (Path root : roots) {
+            if (path.startsWith(root)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void closeLog() {
+        try {
+            log.close();
+        } catch (IOException e) {
+            System.err.printf("Cannot close the hash cache: %s%n", e.getMessage());
+        }
+        log = null;
+    }
+
+    @Override
+    public synchronized void close() throws WalkException {
+        if (log == null) {
+            return;
+        }
+        closeLog();
+        if (dropStale() || needsCompaction()) {
+            try {
+                compact();
+            } catch (IOException e) {
+                throw new WalkException("Cannot compact the hash cache: " + file, e);
+            }
+        }
+    }
+
+    private static class Entry {
+        private final long size;
+        private final long modified;
+        private final String key;
+        private final byte[] digest;
+        private volatile boolean touched;
+
+        Entry(long size, long modified, String key, byte[] digest) {
+            this.size = size;
+            this.modified = modified;
+            this.key = key;
+            this.digest = digest;
+        }
+    }
+}
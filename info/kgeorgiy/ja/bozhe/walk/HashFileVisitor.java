@@ -1,6 +1,5 @@
 package info.kgeorgiy.ja.bozhe.walk;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Path;
@@ -8,21 +7,29 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 
 public class HashFileVisitor extends SimpleFileVisitor<Path> {
-    private final BufferedWriter writer;
+    private final HashProcessor processor;
+    private final WalkMetrics metrics;
     private boolean success;
 
     public boolean visitFailed() {
         return !success;
     }
 
-    HashFileVisitor(BufferedWriter writer) {
-        this.writer = writer;
+    HashFileVisitor(HashProcessor processor, WalkMetrics metrics) {
+        this.processor = processor;
+        this.metrics = metrics;
         success = true;
     }
 
-    private FileVisitResult process(Path file, long hash) {
+    private FileVisitResult process(Path file, BasicFileAttributes attributes, boolean failed) {
+        metrics.fileVisited();
         try {
-            HashWorker.writeHash(hash, file.toString(), writer);
+            if (failed) {
+                metrics.failure();
+                processor.processFailed(file.toString());
+            } else {
+                processor.process(file, file.toString(), attributes);
+            }
             return FileVisitResult.CONTINUE;
         } catch (WalkException ex) {
             success = false;
@@ -30,19 +37,25 @@ public class HashFileVisitor extends SimpleFileVisitor<Path> {
         }
     }
 
+    @Override
+    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes a) {
+        metrics.enterDirectory(dir);
+        return FileVisitResult.CONTINUE;
+    }
 
-    private FileVisitResult handle(Path file) {
-        return process(file, HashWorker.countHash(file));
+    @Override
+    public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+        metrics.leaveDirectory(dir);
+        return super.postVisitDirectory(dir, e);
     }
 
     @Override
     public FileVisitResult visitFile(Path file, BasicFileAttributes a) {
-        return handle(file);
+        return process(file, a, false);
     }
 
     @Override
     public FileVisitResult visitFileFailed(Path file, IOException e) {
-        return process(file, 0);
+        return process(file, null, true);
     }
 }
-
@@ -0,0 +1,177 @@
+package info.kgeorgiy.ja.bozhe.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sink for {@code <hex digest> <file name>} lines and indented {@code <hex chunk hash> <chunk length>} lines.
+ * Lines are formatted straight into a reusable buffer which is flushed only when it is full.
+ * Instances are not thread-safe.
+ */
+public abstract class HashOutput implements Closeable {
+    private static final int BUF_SIZE = 1 << 16;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final String CHUNK_INDENT = "\t";
+
+    private final byte[] chunkDigest = new byte[Long.BYTES];
+
+    public static HashOutput open(Path file, boolean direct) throws IOException {
+        if (direct) {
+            return new ChannelOutput(FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        }
+        return new WriterOutput(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8.newEncoder()));
+    }
+
+    public void write(byte[] digest, String file) throws WalkException {
+        write("", digest, file);
+    }
+
+    public void writeChunk(long hash, int length) throws WalkException {
+        HashAlgorithms.putLong(chunkDigest, hash);
+        write(CHUNK_INDENT, chunkDigest, Integer.toString(length));
+    }
+
+    private void write(String indent, byte[] digest, String text) throws WalkException {
+        try {
+            writeLine(indent, digest, text);
+        } catch (IOException e) {
+            throw new WalkException("Cannot write to the output file.");
+        }
+    }
+
+    protected abstract void writeLine(String indent, byte[] digest, String text) throws IOException;
+
+    private static class WriterOutput extends HashOutput {
+        private final Writer writer;
+        private final char[] buffer = new char[BUF_SIZE];
+        private int size;
+
+        WriterOutput(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        protected void writeLine(String indent, byte[] digest, String text) throws IOException {
+            int length = indent.length() + 2 * digest.length + 1 + text.length() + LINE_SEPARATOR.length();
+            if (size + length > buffer.length) {
+                flush();
+            }
+            if (length > buffer.length) {
+                writer.write(indent + HashAlgorithms.toHex(digest) + " " + text + LINE_SEPARATOR);
+                return;
+            }
+            size = append(indent, size);
+            for (byte b : digest) {
+                buffer[size++] = (char) HEX[(b >> 4) & 0xf];
+                buffer[size++] = (char) HEX[b & 0xf];
+            }
+            buffer[size++] = ' ';
+            size = append(text, size);
+            size = append(LINE_SEPARATOR, size);
+        }
+
+        private int append(String string, int offset) {
+            string.getChars(0, string.length(), buffer, offset);
+            return offset + string.length();
+        }
+
+        private void flush() throws IOException {
+            writer.write(buffer, 0, size);
+            size = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                writer.close();
+            }
+        }
+    }
+
+    private static class ChannelOutput extends HashOutput {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUF_SIZE);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+        ChannelOutput(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        protected void writeLine(String indent, byte[] digest, String text) throws IOException {
+            encode(indent);
+            ensure(2 * digest.length + 1);
+            for (byte b : digest) {
+                buffer.put(HEX[(b >> 4) & 0xf]);
+                buffer.put(HEX[b & 0xf]);
+            }
+            buffer.put((byte) ' ');
+            encode(text);
+            encode(LINE_SEPARATOR);
+        }
+
+        private void encode(String string) throws IOException {
+            int i = 0;
+            // ASCII fast path, the encoder is only needed for the rest of the string.
+            for (; i < string.length() && string.charAt(i) < 0x80; ++i) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                buffer.put((byte) string.charAt(i));
+            }
+            if (i == string.length()) {
+                return;
+            }
+            CharBuffer chars = CharBuffer.wrap(string, i, string.length());
+            CoderResult result;
+            encoder.reset();
+            while ((result = encoder.encode(chars, buffer, true)).isOverflow()) {
+                flush();
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+            while (encoder.flush(buffer).isOverflow()) {
+                flush();
+            }
+        }
+
+        private void ensure(int length) throws IOException {
+            if (buffer.remaining() < length) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
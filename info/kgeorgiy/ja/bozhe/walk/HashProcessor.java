@@ -0,0 +1,17 @@
+package info.kgeorgiy.ja.bozhe.walk;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+public interface HashProcessor extends AutoCloseable {
+    /**
+     * Hashes the file and outputs its digest under the given name.
+     * {@code attributes} may be {@code null} if they are not known yet.
+     */
+    void process(Path file, String name, BasicFileAttributes attributes) throws WalkException;
+
+    void processFailed(String name) throws WalkException;
+
+    @Override
+    void close() throws WalkException;
+}
@@ -1,42 +1,127 @@
 package info.kgeorgiy.ja.bozhe.walk;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 
+/**
+ * Computes file digests with a given {@link HashAlgorithm}.
+ * Every instance owns its read buffer and hashing state, so an instance must not be shared between threads.
+ */
 public class HashWorker {
-    private static final int BUF_SIZE = 1024;
-    private static final byte[] buf = new byte[BUF_SIZE];
-    final static long HIGH_BYTES = 0xff00_0000_0000_0000L;
-
-    public static long countHash(Path file) {
-        try (InputStream stream = new BufferedInputStream(Files.newInputStream(file))) {
-            long hash = 0, high;
-            for (int cnt = 0; cnt != -1; cnt = stream.read(buf)) {
-                for (int i = 0; i < cnt; ++i) {
-                    hash = (hash << 8) + (buf[i] & 0xff);
-                    if ((high = hash & HIGH_BYTES) != 0) {
-                        hash ^= high >> 48;
-                        hash &= ~high;
-                    }
+    private static final int BUF_SIZE = 64 * 1024;
+    // Files of at least this size are memory-mapped instead of being read through the buffer.
+    static final long MAP_THRESHOLD = 1 << 20;
+    private static final long MAP_REGION = 1 << 30;
+
+    private final ByteBuffer buffer;
+    private final HashAlgorithm.Hasher hasher;
+    private final HashCache cache;
+    private final WalkMetrics metrics;
+
+    public HashWorker(HashAlgorithm algorithm) {
+        this(algorithm, null, new WalkMetrics());
+    }
+
+    public HashWorker(HashAlgorithm algorithm, HashCache cache, WalkMetrics metrics) {
+        this(algorithm, cache, metrics, BUF_SIZE);
+    }
+
+    public HashWorker(HashAlgorithm algorithm, HashCache cache, WalkMetrics metrics, int bufferSize) {
+        this(algorithm.newHasher(), cache, metrics, bufferSize);
+    }
+
+    public HashWorker(HashAlgorithm.Hasher hasher, WalkMetrics metrics) {
+        this(hasher, null, metrics, BUF_SIZE);
+    }
+
+    private HashWorker(HashAlgorithm.Hasher hasher, HashCache cache, WalkMetrics metrics, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size should be positive.");
+        }
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.hasher = hasher;
+        this.cache = cache;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Computes the digest of the file, reusing the cached one if the file has not changed.
+     * Attributes are read from the file system when {@code attributes} is {@code null}.
+     */
+    public boolean countHash(Path file, BasicFileAttributes attributes, byte[] digest) {
+        if (cache == null) {
+            return countHash(file, digest);
+        }
+        if (attributes == null) {
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (IOException e) {
+                return countHash(file, digest);
+            }
+        }
+        // Attributes of a symbolic link say nothing about changes of its target.
+        if (!attributes.isRegularFile()) {
+            return countHash(file, digest);
+        }
+        if (cache.lookup(file, attributes, digest)) {
+            metrics.cacheHit();
+            return true;
+        }
+        if (countHash(file, digest)) {
+            cache.store(file, attributes, digest);
+            return true;
+        }
+        return false;
+    }
+
+    public boolean countHash(Path file, byte[] digest) {
+        long start = System.nanoTime();
+        hasher.reset();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAP_THRESHOLD) {
+                try {
+                    countMapped(channel, size);
+                } catch (InternalError e) {
+                    // The file was truncated while mapped, so reading the mapping faulted: hash what is left instead.
+                    hasher.reset();
+                    channel.position(0);
+                    size = countBuffered(channel);
                 }
+            } else {
+                size = countBuffered(channel);
             }
-            return hash;
+            hasher.digest(digest);
+            metrics.fileHashed(size, System.nanoTime() - start);
+            return true;
         } catch (IOException e) {
             System.err.printf("Cannot read from the file: %s%n", file.toString());
-            return 0;
+            metrics.failure();
+            HashAlgorithms.clear(digest);
+            return false;
         }
     }
 
-    public static void writeHash(long hash, String file, BufferedWriter writer) throws WalkException {
-        try {
-            writer.write(String.format("%016x %s", hash, file));
-            writer.newLine();
-        } catch (IOException e) {
-            throw new WalkException("Cannot write to the output file.");
+    private long countBuffered(FileChannel channel) throws IOException {
+        long size = 0;
+        buffer.clear();
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            size += buffer.remaining();
+            hasher.update(buffer);
+            buffer.clear();
+        }
+        return size;
+    }
+
+    private void countMapped(FileChannel channel, long size) throws IOException {
+        for (long position = 0; position < size; position += MAP_REGION) {
+            hasher.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_REGION, size - position)));
         }
     }
 }
@@ -0,0 +1,172 @@
+package info.kgeorgiy.ja.bozhe.walk;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replacement for {@link Files#walkFileTree(Path, FileVisitor)} that lists directories
+ * and reads attributes concurrently on a {@link ForkJoinPool}.
+ *
+ * <p>The visitor is still called from the calling thread only, in the same order and with the same
+ * arguments as {@code Files.walkFileTree} without {@link FileVisitOption#FOLLOW_LINKS} would use.
+ * Listings run ahead of the visitor until {@link #PREFETCH_LIMIT} entries are waiting to be visited,
+ * after that subdirectories are listed only when the visitor reaches them.
+ */
+public class ParallelFileTreeWalker implements AutoCloseable {
+    private static final long PREFETCH_LIMIT = 1 << 20;
+
+    private final ForkJoinPool pool;
+    private final AtomicLong prefetched = new AtomicLong();
+
+    public ParallelFileTreeWalker(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public void walk(Path start, FileVisitor<? super Path> visitor) throws IOException {
+        visit(Node.read(start), visitor);
+    }
+
+    private FileVisitResult visit(Node node, FileVisitor<? super Path> visitor) throws IOException {
+        if (node.error != null) {
+            return visitor.visitFileFailed(node.path, node.error);
+        }
+        if (!node.attributes.isDirectory()) {
+            return visitor.visitFile(node.path, node.attributes);
+        }
+
+        Listing listing = (node.listing != null ? node.listing : pool.submit(new ListingTask(node.path))).join();
+        if (listing.openError != null) {
+            return visitor.visitFileFailed(node.path, listing.openError);
+        }
+        List<Node> children = listing.children;
+        int next = 0;
+        try {
+            FileVisitResult result = visitor.preVisitDirectory(node.path, node.attributes);
+            if (result != FileVisitResult.CONTINUE) {
+                return result == FileVisitResult.SKIP_SUBTREE ? FileVisitResult.CONTINUE : result;
+            }
+
+            while (next < children.size()) {
+                Node child = children.get(next);
+                children.set(next++, null);
+                prefetched.decrementAndGet();
+                result = visit(child, visitor);
+                if (result == FileVisitResult.TERMINATE) {
+                    return result;
+                }
+                if (result == FileVisitResult.SKIP_SIBLINGS) {
+                    break;
+                }
+            }
+        } finally {
+            release(children, next);
+        }
+        FileVisitResult result = visitor.postVisitDirectory(node.path, listing.iterationError);
+        return result == FileVisitResult.SKIP_SIBLINGS ? FileVisitResult.CONTINUE : result;
+    }
+
+    /**
+     * Subtracts the nodes that will not be visited from {@link #prefetched}, together with everything
+     * already listed below them. Their listings that have not started yet are cancelled and count nothing.
+     */
+    private void release(List<Node> nodes, int from) {
+        prefetched.addAndGet(-(nodes.size() - from));
+        for (int i = from; i < nodes.size(); ++i) {
+            ListingTask listing = nodes.get(i).listing;
+            if (listing != null) {
+                listing.cancelled = true;
+                release(listing.join().children, 0);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private static class Node {
+        private final Path path;
+        private final BasicFileAttributes attributes;
+        private final IOException error;
+        private ListingTask listing;
+
+        private Node(Path path, BasicFileAttributes attributes, IOException error) {
+            this.path = path;
+            this.attributes = attributes;
+            this.error = error;
+        }
+
+        static Node read(Path path) {
+            try {
+                return new Node(path, Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS), null);
+            } catch (IOException e) {
+                return new Node(path, null, e);
+            }
+        }
+    }
+
+    private static class Listing {
+        private final List<Node> children;
+        private final IOException openError;
+        private final IOException iterationError;
+
+        Listing(List<Node> children, IOException openError, IOException iterationError) {
+            this.children = children;
+            this.openError = openError;
+            this.iterationError = iterationError;
+        }
+    }
+
+    private class ListingTask extends RecursiveTask<Listing> {
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+        private volatile boolean cancelled;
+
+        ListingTask(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        protected Listing compute() {
+            if (cancelled) {
+                return new Listing(List.of(), null, null);
+            }
+            DirectoryStream<Path> stream;
+            try {
+                stream = Files.newDirectoryStream(directory);
+            } catch (IOException e) {
+                return new Listing(List.of(), e, null);
+            }
+
+            List<Node> children = new ArrayList<>();
+            IOException iterationError = null;
+            try (stream) {
+                for (Path entry : stream) {
+                    children.add(Node.read(entry));
+                }
+            } catch (DirectoryIteratorException e) {
+                iterationError = e.getCause();
+            } catch (IOException e) {
+                iterationError = e;
+            }
+
+            if (prefetched.addAndGet(children.size()) < PREFETCH_LIMIT) {
+                for (Node child : children) {
+                    if (child.attributes != null && child.attributes.isDirectory()) {
+                        child.listing = new ListingTask(child.path);
+                        child.listing.fork();
+                    }
+                }
+            }
+            return new Listing(children, null, iterationError);
+        }
+    }
+}
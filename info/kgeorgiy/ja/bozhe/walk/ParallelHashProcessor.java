@@ -0,0 +1,116 @@
+package info.kgeorgiy.ja.bozhe.walk;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.*;
+
+/**
+ * Hashes files on a pool of worker threads while a single writer thread
+ * emits the results in submission order.
+ * The number of files submitted but not yet written is bounded, so traversal
+ * blocks instead of running arbitrarily far ahead of hashing.
+ */
+public class ParallelHashProcessor implements HashProcessor {
+    private static final int QUEUE_FACTOR = 16;
+    private static final Entry POISON = new Entry("", null);
+
+    private final HashOutput output;
+    private final int digestLength;
+    private final ThreadLocal<HashWorker> workers;
+    private final ExecutorService hashers;
+    private final BlockingQueue<Entry> pending;
+    private final Thread writerThread;
+    private volatile WalkException failure;
+
+    ParallelHashProcessor(HashOutput output, HashAlgorithm algorithm, HashCache cache, WalkMetrics metrics, int threads) {
+        this.output = output;
+        this.digestLength = algorithm.getDigestLength();
+        this.workers = ThreadLocal.withInitial(() -> new HashWorker(algorithm, cache, metrics));
+        this.hashers = Executors.newFixedThreadPool(threads);
+        this.pending = new ArrayBlockingQueue<>(threads * QUEUE_FACTOR);
+        metrics.setQueueDepth(pending::size);
+        this.writerThread = new Thread(this::writeAll, "walk-writer");
+        writerThread.start();
+    }
+
+    @Override
+    public void process(Path file, String name, BasicFileAttributes attributes) throws WalkException {
+        submit(new Entry(name, hashers.submit(() -> {
+            byte[] digest = new byte[digestLength];
+            workers.get().countHash(file, attributes, digest);
+            return digest;
+        })));
+    }
+
+    @Override
+    public void processFailed(String name) throws WalkException {
+        submit(new Entry(name, CompletableFuture.completedFuture(new byte[digestLength])));
+    }
+
+    private void submit(Entry entry) throws WalkException {
+        checkFailure();
+        try {
+            pending.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WalkException("Hashing was interrupted.", e);
+        }
+    }
+
+    private void checkFailure() throws WalkException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void writeAll() {
+        try {
+            Entry entry;
+            while ((entry = pending.take()) != POISON) {
+                // After a failure keep draining so that producers never block on a full queue.
+                if (failure == null) {
+                    try {
+                        output.write(entry.digest(), entry.name);
+                    } catch (WalkException e) {
+                        failure = e;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            failure = new WalkException("Writing was interrupted.", e);
+        }
+    }
+
+    @Override
+    public void close() throws WalkException {
+        try {
+            pending.put(POISON);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            writerThread.interrupt();
+            Thread.currentThread().interrupt();
+            throw new WalkException("Hashing was interrupted.", e);
+        } finally {
+            hashers.shutdownNow();
+        }
+        checkFailure();
+    }
+
+    private static class Entry {
+        private final String name;
+        private final Future<byte[]> digest;
+
+        Entry(String name, Future<byte[]> digest) {
+            this.name = name;
+            this.digest = digest;
+        }
+
+        byte[] digest() throws InterruptedException, WalkException {
+            try {
+                return digest.get();
+            } catch (ExecutionException e) {
+                throw new WalkException("Cannot hash the file: " + name, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package info.kgeorgiy.ja.bozhe.walk;
+
+import java.nio.ByteBuffer;
+
+public class PjwHash implements HashAlgorithm {
+    private static final long HIGH_BYTES = 0xff00_0000_0000_0000L;
+
+    @Override
+    public String getName() {
+        return "pjw";
+    }
+
+    @Override
+    public int getDigestLength() {
+        return Long.BYTES;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        return new Hasher() {
+            private long hash;
+
+            @Override
+            public void reset() {
+                hash = 0;
+            }
+
+            @Override
+            public void update(ByteBuffer buffer) {
+                long hash = this.hash, high;
+                for (int i = buffer.position(), limit = buffer.limit(); i < limit; ++i) {
+                    hash = (hash << 8) + (buffer.get(i) & 0xff);
+                    if ((high = hash & HIGH_BYTES) != 0) {
+                        hash ^= high >> 48;
+                        hash &= ~high;
+                    }
+                }
+                this.hash = hash;
+                buffer.position(buffer.limit());
+            }
+
+            @Override
+            public void digest(byte[] digest) {
+                HashAlgorithms.putLong(digest, hash);
+            }
+        };
+    }
+}
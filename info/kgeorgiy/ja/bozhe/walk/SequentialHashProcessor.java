@@ -0,0 +1,33 @@
+package info.kgeorgiy.ja.bozhe.walk;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+public class SequentialHashProcessor implements HashProcessor {
+    private final HashOutput output;
+    private final HashWorker worker;
+    private final byte[] digest;
+    private final byte[] empty;
+
+    SequentialHashProcessor(HashOutput output, HashAlgorithm algorithm, HashCache cache, WalkMetrics metrics) {
+        this.output = output;
+        this.worker = new HashWorker(algorithm, cache, metrics);
+        this.digest = new byte[algorithm.getDigestLength()];
+        this.empty = new byte[algorithm.getDigestLength()];
+    }
+
+    @Override
+    public void process(Path file, String name, BasicFileAttributes attributes) throws WalkException {
+        worker.countHash(file, attributes, digest);
+        output.write(digest, name);
+    }
+
+    @Override
+    public void processFailed(String name) throws WalkException {
+        output.write(empty, name);
+    }
+
+    @Override
+    public void close() {
+    }
+}
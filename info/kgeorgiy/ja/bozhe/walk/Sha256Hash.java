@@ -0,0 +1,48 @@
+package info.kgeorgiy.ja.bozhe.walk;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public class Sha256Hash implements HashAlgorithm {
+    @Override
+    public String getName() {
+        return "sha256";
+    }
+
+    @Override
+    public int getDigestLength() {
+        return 32;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        final MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM.", e);
+        }
+        return new Hasher() {
+            @Override
+            public void reset() {
+                messageDigest.reset();
+            }
+
+            @Override
+            public void update(ByteBuffer buffer) {
+                messageDigest.update(buffer);
+            }
+
+            @Override
+            public void digest(byte[] digest) {
+                try {
+                    messageDigest.digest(digest, 0, digest.length);
+                } catch (DigestException e) {
+                    throw new IllegalArgumentException("Digest buffer is too small.", e);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,196 @@
+package info.kgeorgiy.ja.bozhe.walk;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Counters of a single walk.
+ * Updates are lock-free and can come from any thread, except for directory tracking
+ * which is done by the traversing thread only.
+ */
+public class WalkMetrics implements WalkMetricsMBean, AutoCloseable {
+    private static final AtomicInteger IDS = new AtomicInteger();
+    private static final double MEGABYTE = 1024 * 1024;
+
+    private final long start = System.nanoTime();
+    private final LongAdder files = new LongAdder();
+    private final LongAdder directories = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    // Start time and time spent in subdirectories of every directory being traversed.
+    private final Deque<long[]> directoryTimes = new ArrayDeque<>();
+    private volatile IntSupplier queueDepth = () -> 0;
+    private volatile Path currentDirectory;
+    private volatile Path slowestDirectory;
+    private volatile long slowestDirectoryNanos;
+    private ObjectName name;
+    private ScheduledExecutorService reporter;
+
+    public void fileVisited() {
+        files.increment();
+    }
+
+    public void fileHashed(long size, long nanos) {
+        bytes.add(size);
+        latency.record(nanos);
+    }
+
+    public void cacheHit() {
+        cacheHits.increment();
+    }
+
+    public void failure() {
+        failures.increment();
+    }
+
+    void setQueueDepth(IntSupplier queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    public void enterDirectory(Path directory) {
+        directories.increment();
+        directoryTimes.push(new long[]{System.nanoTime(), 0});
+        currentDirectory = directory;
+    }
+
+    /**
+     * Records the time spent in a directory excluding its subdirectories.
+     */
+    public void leaveDirectory(Path directory) {
+        long[] times = directoryTimes.pop();
+        long elapsed = System.nanoTime() - times[0];
+        long own = elapsed - times[1];
+        if (own > slowestDirectoryNanos) {
+            slowestDirectoryNanos = own;
+            slowestDirectory = directory;
+        }
+        if (directoryTimes.isEmpty()) {
+            currentDirectory = null;
+        } else {
+            directoryTimes.peek()[1] += elapsed;
+            currentDirectory = directory.getParent();
+        }
+    }
+
+    void register() throws WalkException {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            name = new ObjectName("info.kgeorgiy.ja.bozhe.walk:type=WalkMetrics,id=" + IDS.incrementAndGet());
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            throw new WalkException("Cannot register walk metrics.", e);
+        }
+    }
+
+    void startReporting(long periodSeconds) {
+        reporter = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "walk-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> System.err.println(progress()), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public String progress() {
+        Path directory = currentDirectory;
+        return String.format("[progress] files %d, dirs %d, %.1f MB (%.1f MB/s), cached %d, failures %d, queue %d,"
+                        + " latency p50 %d us p99 %d us%s",
+                getFilesVisited(), getDirectoriesVisited(), bytes.sum() / MEGABYTE, getThroughputMegabytesPerSecond(),
+                getCacheHits(), getFailures(), getQueueDepth(), getLatencyP50Micros(), getLatencyP99Micros(),
+                directory == null ? "" : ", in " + directory);
+    }
+
+    @Override
+    public void close() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            System.err.println(progress());
+            if (slowestDirectory != null) {
+                System.err.printf("[progress] slowest directory %s (%d ms)%n", slowestDirectory, getSlowestDirectoryMillis());
+            }
+        }
+        if (name != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            } catch (JMException e) {
+                System.err.println("Cannot unregister walk metrics: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public long getFilesVisited() {
+        return files.sum();
+    }
+
+    @Override
+    public long getDirectoriesVisited() {
+        return directories.sum();
+    }
+
+    @Override
+    public long getBytesHashed() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    @Override
+    public double getThroughputMegabytesPerSecond() {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return seconds == 0 ? 0 : bytes.sum() / MEGABYTE / seconds;
+    }
+
+    @Override
+    public long getLatencyP50Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(latency.percentile(0.5));
+    }
+
+    @Override
+    public long getLatencyP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(latency.percentile(0.99));
+    }
+
+    @Override
+    public String getCurrentDirectory() {
+        Path directory = currentDirectory;
+        return directory == null ? "" : directory.toString();
+    }
+
+    @Override
+    public String getSlowestDirectory() {
+        Path directory = slowestDirectory;
+        return directory == null ? "" : directory.toString();
+    }
+
+    @Override
+    public long getSlowestDirectoryMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowestDirectoryNanos);
+    }
+}
@@ -0,0 +1,27 @@
+package info.kgeorgiy.ja.bozhe.walk;
+
+public interface WalkMetricsMBean {
+    long getFilesVisited();
+
+    long getDirectoriesVisited();
+
+    long getBytesHashed();
+
+    long getCacheHits();
+
+    long getFailures();
+
+    int getQueueDepth();
+
+    double getThroughputMegabytesPerSecond();
+
+    long getLatencyP50Micros();
+
+    long getLatencyP99Micros();
+
+    String getCurrentDirectory();
+
+    String getSlowestDirectory();
+
+    long getSlowestDirectoryMillis();
+}
@@ -0,0 +1,118 @@
+package info.kgeorgiy.ja.bozhe.walk;
+
+public class WalkOptions {
+    static final String USAGE = "Usage: RecursiveWalk <input file name> <output file name> [--threads <number>] [--hash <pjw|xxhash64|crc32c|sha256>]"
+            + " [--cache <cache file name>] [--direct-output] [--traversal-threads <number>]"
+            + " [--chunks] [--progress <seconds>] [--jmx]";
+
+    private int threads = 1;
+    private HashAlgorithm algorithm = HashAlgorithm.BUILT_IN.get(0);
+    private String cacheFile;
+    private boolean directOutput;
+    private int traversalThreads;
+    private boolean chunks;
+    private int progressPeriod;
+    private boolean jmx;
+
+    private WalkOptions() {
+    }
+
+    static WalkOptions parse(String[] args, int from) throws WalkException {
+        WalkOptions options = new WalkOptions();
+        for (int i = from; i < args.length; ++i) {
+            if (args[i] == null) {
+                throw new WalkException("Options must not be null.");
+            }
+            switch (args[i]) {
+                case "--threads":
+                    options.threads = parsePositive(args, ++i);
+                    break;
+                case "--hash":
+                    options.algorithm = HashAlgorithm.forName(value(args, ++i));
+                    break;
+                case "--cache":
+                    options.cacheFile = value(args, ++i);
+                    break;
+                case "--direct-output":
+                    options.directOutput = true;
+                    break;
+                case "--traversal-threads":
+                    options.traversalThreads = parsePositive(args, ++i);
+                    break;
+                case "--chunks":
+                    options.chunks = true;
+                    break;
+                case "--progress":
+                    options.progressPeriod = parsePositive(args, ++i);
+                    break;
+                case "--jmx":
+                    options.jmx = true;
+                    break;
+                default:
+                    throw new WalkException("Unknown option: " + args[i] + System.lineSeparator() + USAGE);
+            }
+        }
+        return options;
+    }
+
+    private static String value(String[] args, int index) throws WalkException {
+        if (index >= args.length || args[index] == null) {
+            throw new WalkException("Value expected after " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    private static int parsePositive(String[] args, int index) throws WalkException {
+        try {
+            int value = Integer.parseInt(value(args, index));
+            if (value <= 0) {
+                throw new WalkException("Value of " + args[index - 1] + " must be positive: " + value);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new WalkException("Invalid number for " + args[index - 1] + ": " + args[index]);
+        }
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public HashAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public String getCacheFile() {
+        return cacheFile;
+    }
+
+    public boolean isDirectOutput() {
+        return directOutput;
+    }
+
+    /**
+     * Returns the parallelism of directory traversal, {@code 0} stands for sequential traversal.
+     */
+    public int getTraversalThreads() {
+        return traversalThreads;
+    }
+
+    /**
+     * Returns whether files are split into content-defined chunks instead of being hashed as a whole.
+     * Chunking always runs on a single thread and ignores the hash algorithm and the cache.
+     */
+    public boolean isChunks() {
+        return chunks;
+    }
+
+    /**
+     * Returns the period of progress lines on stderr in seconds, {@code 0} if progress is not reported.
+     */
+    public int getProgressPeriod() {
+        return progressPeriod;
+    }
+
+    public boolean isJmx() {
+        return jmx;
+    }
+}
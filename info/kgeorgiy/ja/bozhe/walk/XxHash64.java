@@ -0,0 +1,129 @@
+package info.kgeorgiy.ja.bozhe.walk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Streaming implementation of <a href="https://github.com/Cyan4973/xxHash">xxHash64</a> with zero seed.
+ */
+public class XxHash64 implements HashAlgorithm {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE = 32;
+
+    @Override
+    public String getName() {
+        return "xxhash64";
+    }
+
+    @Override
+    public int getDigestLength() {
+        return Long.BYTES;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        return new XxHasher();
+    }
+
+    private static long round(long acc, long input) {
+        return Long.rotateLeft(acc + input * PRIME2, 31) * PRIME1;
+    }
+
+    private static long mergeRound(long acc, long value) {
+        return (acc ^ round(0, value)) * PRIME1 + PRIME4;
+    }
+
+    private static long getLong(ByteBuffer buffer, int index) {
+        long value = buffer.getLong(index);
+        return buffer.order() == ByteOrder.LITTLE_ENDIAN ? value : Long.reverseBytes(value);
+    }
+
+    private static class XxHasher implements Hasher {
+        private final ByteBuffer tail = ByteBuffer.allocate(STRIPE).order(ByteOrder.LITTLE_ENDIAN);
+        private long v1, v2, v3, v4;
+        private long total;
+
+        XxHasher() {
+            reset();
+        }
+
+        @Override
+        public void reset() {
+            v1 = PRIME1 + PRIME2;
+            v2 = PRIME2;
+            v3 = 0;
+            v4 = -PRIME1;
+            total = 0;
+            tail.clear();
+        }
+
+        private void stripe(ByteBuffer buffer, int i) {
+            v1 = round(v1, getLong(buffer, i));
+            v2 = round(v2, getLong(buffer, i + 8));
+            v3 = round(v3, getLong(buffer, i + 16));
+            v4 = round(v4, getLong(buffer, i + 24));
+        }
+
+        @Override
+        public void update(ByteBuffer buffer) {
+            int i = buffer.position(), limit = buffer.limit();
+            total += limit - i;
+            if (tail.position() > 0) {
+                while (i < limit && tail.hasRemaining()) {
+                    tail.put(buffer.get(i++));
+                }
+                if (tail.hasRemaining()) {
+                    buffer.position(limit);
+                    return;
+                }
+                stripe(tail, 0);
+                tail.clear();
+            }
+            for (; i + STRIPE <= limit; i += STRIPE) {
+                stripe(buffer, i);
+            }
+            while (i < limit) {
+                tail.put(buffer.get(i++));
+            }
+            buffer.position(limit);
+        }
+
+        @Override
+        public void digest(byte[] digest) {
+            long hash;
+            if (total >= STRIPE) {
+                hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+                hash = mergeRound(hash, v1);
+                hash = mergeRound(hash, v2);
+                hash = mergeRound(hash, v3);
+                hash = mergeRound(hash, v4);
+            } else {
+                hash = v3 + PRIME5;
+            }
+            hash += total;
+
+            int i = 0, size = tail.position();
+            for (; i + Long.BYTES <= size; i += Long.BYTES) {
+                hash = Long.rotateLeft(hash ^ round(0, tail.getLong(i)), 27) * PRIME1 + PRIME4;
+            }
+            if (i + Integer.BYTES <= size) {
+                hash = Long.rotateLeft(hash ^ (tail.getInt(i) & 0xffff_ffffL) * PRIME1, 23) * PRIME2 + PRIME3;
+                i += Integer.BYTES;
+            }
+            for (; i < size; ++i) {
+                hash = Long.rotateLeft(hash ^ (tail.get(i) & 0xff) * PRIME5, 11) * PRIME1;
+            }
+
+            hash ^= hash >>> 33;
+            hash *= PRIME2;
+            hash ^= hash >>> 29;
+            hash *= PRIME3;
+            hash ^= hash >>> 32;
+            HashAlgorithms.putLong(digest, hash);
+        }
+    }
+}
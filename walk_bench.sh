@@ -0,0 +1,67 @@
+#!/bin/bash
+
+# Times RecursiveWalk over synthetic data.
+# Usage: ./walk_bench.sh [fan-out] [depth] [files per directory] [max single file size in KB]
+
+FANOUT=${1:-4}
+DEPTH=${2:-3}
+FILES=${3:-64}
+MAX_KB=${4:-65536}
+DIR=info/kgeorgiy/ja/bozhe/walk
+MAIN=info.kgeorgiy.ja.bozhe.walk.RecursiveWalk
+WORK=$(mktemp -d)
+
+javac -d ${WORK}/classes ${DIR}/*.java || exit 1
+
+make_tree() {
+    local dir=$1 level=$2
+    mkdir -p ${dir}
+    for ((f = 0; f < FILES; f++)); do
+        head -c $((RANDOM % 16 * 1024 + 1)) /dev/urandom > ${dir}/file${f}
+    done
+    if ((level < DEPTH)); then
+        for ((d = 0; d < FANOUT; d++)); do
+            make_tree ${dir}/dir${d} $((level + 1))
+        done
+    fi
+}
+
+bench() {
+    local name=$1 input=$2
+    shift 2
+    local start=$(date +%s%N)
+    java -cp ${WORK}/classes ${MAIN} ${input} ${WORK}/output.txt "$@" >/dev/null 2>${WORK}/errors.txt
+    local status=$?
+    local end=$(date +%s%N)
+    # Walk reports its errors to stderr without changing the exit code, so any message there is a failure.
+    if ((status != 0)) || [[ -s ${WORK}/errors.txt ]]; then
+        printf "%-40s   FAILED (exit code %d)\n" "${name}" ${status}
+        sed 's/^/    /' ${WORK}/errors.txt | head -n 5
+        return
+    fi
+    printf "%-40s %8d ms\n" "${name}" $(((end - start) / 1000000))
+}
+
+echo "Single files"
+for ((kb = 4; kb <= MAX_KB; kb *= 16)); do
+    head -c $((kb * 1024)) /dev/urandom > ${WORK}/single
+    echo ${WORK}/single > ${WORK}/single.txt
+    for hash in pjw xxhash64 crc32c sha256; do
+        bench "${kb} KB ${hash}" ${WORK}/single.txt --hash ${hash}
+    done
+done
+
+echo "Tree: fan-out ${FANOUT}, depth ${DEPTH}, ${FILES} files per directory"
+make_tree ${WORK}/tree 0
+# The hash cache does not trust files modified within the last seconds, so the tree is backdated.
+find ${WORK}/tree -exec touch -d "1 hour ago" {} +
+echo ${WORK}/tree > ${WORK}/tree.txt
+bench "sequential" ${WORK}/tree.txt
+bench "direct output" ${WORK}/tree.txt --direct-output
+bench "4 hashing threads" ${WORK}/tree.txt --threads 4
+bench "4 hashing + 4 traversal threads" ${WORK}/tree.txt --threads 4 --traversal-threads 4
+bench "cache, cold" ${WORK}/tree.txt --cache ${WORK}/cache.bin
+bench "cache, warm" ${WORK}/tree.txt --cache ${WORK}/cache.bin
+bench "chunks" ${WORK}/tree.txt --chunks
+
+rm -rf ${WORK}